@@ -0,0 +1,13 @@
+package gitlet;
+
+/** Thrown when a command would create a repository or branch that
+ *  already exists.
+ *  @author Wilson Chu
+ */
+public class AlreadyExistsException extends GitletException {
+
+    /** A AlreadyExistsException with MSG as its message. */
+    AlreadyExistsException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,132 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * An append-only log of text records, used for the global log. Each
+ * record is stored as its UTF-8 bytes followed by a four byte length
+ * trailer, so new records cost a single constant-size append and the
+ * log can be read back newest-first by walking the trailers from the
+ * end of the file.
+ * @author Wilson Chu
+ */
+class AppendLog {
+
+    /** The number of bytes used by the length trailer of each record. */
+    private static final int TRAILER = 4;
+
+    /** The size of the chunks we read from the end of the log. */
+    private static final int CHUNK = 8192;
+
+    /**
+     * Appends RECORD to the end of the log stored in LOGFILE, creating
+     * the file if needed.
+     * @param logFile The log file we are appending to.
+     * @param record The text of the record.
+     */
+    static void append(File logFile, String record) {
+        try (FileOutputStream out = new FileOutputStream(logFile, true)) {
+            out.write(encode(record));
+        } catch (IOException e) {
+            throw Utils.error("Could not append to %s.", logFile.getName());
+        }
+    }
+
+    /**
+     * Appends RECORDS, oldest first, to the end of the log stored in
+     * LOGFILE with a single write.
+     * @param logFile The log file we are appending to.
+     * @param records The texts of the records.
+     */
+    static void append(File logFile, List<String> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (String record : records) {
+            bytes.writeBytes(encode(record));
+        }
+        try (FileOutputStream out = new FileOutputStream(logFile, true)) {
+            bytes.writeTo(out);
+        } catch (IOException e) {
+            throw Utils.error("Could not append to %s.", logFile.getName());
+        }
+    }
+
+    /**
+     * Prints every record of LOGFILE to OUT, newest first. Records are
+     * streamed from the end of the file, so only one record is held in
+     * memory at a time.
+     * @param logFile The log file we are printing.
+     * @param out Where the records go.
+     */
+    static void printReversed(File logFile, PrintStream out) {
+        try (RandomAccessFile in = new RandomAccessFile(logFile, "r")) {
+            long end = in.length();
+            byte[] trailer = new byte[TRAILER];
+            while (end >= TRAILER) {
+                in.seek(end - TRAILER);
+                in.readFully(trailer);
+                int length = ByteBuffer.wrap(trailer).getInt();
+                long start = end - TRAILER - length;
+                if (length < 0 || start < 0) {
+                    throw Utils.error("Corrupted log file %s.",
+                            logFile.getName());
+                }
+                in.seek(start);
+                byte[] record = new byte[Math.min(length, CHUNK)];
+                for (int read = 0; read < length; read += record.length) {
+                    int size = Math.min(record.length, length - read);
+                    in.readFully(record, 0, size);
+                    out.write(record, 0, size);
+                }
+                end = start;
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw Utils.error("Could not read %s.", logFile.getName());
+        }
+    }
+
+    /**
+     * Returns whether the length trailers of LOGFILE chain back exactly to
+     * the start of the file, as they do for every log we write.
+     * @param logFile The log file we are checking.
+     * @return True if LOGFILE is a well-formed append-only log.
+     */
+    static boolean isWellFormed(File logFile) {
+        try (RandomAccessFile in = new RandomAccessFile(logFile, "r")) {
+            long end = in.length();
+            while (end >= TRAILER) {
+                in.seek(end - TRAILER);
+                int length = in.readInt();
+                if (length < 0 || end - TRAILER - length < 0) {
+                    return false;
+                }
+                end = end - TRAILER - length;
+            }
+            return end == 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the on-disk representation of RECORD.
+     * @param record The text of the record.
+     * @return The UTF-8 bytes of RECORD followed by their length.
+     */
+    private static byte[] encode(String record) {
+        byte[] bytes = record.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(bytes.length + TRAILER).put(bytes)
+                .putInt(bytes.length).array();
+    }
+}
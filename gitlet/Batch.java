@@ -0,0 +1,143 @@
+package gitlet;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Set;
+
+/**
+ * The BATCH command: runs many commands, one per line of a script, in
+ * a single process. The repository is loaded once, and the stage, branch
+ * and log files are only written at checkpoints instead of after every
+ * command (see Repository.startBatch), so a script that adds hundreds of files
+ * and then commits writes the stage once.
+ *
+ * Each line holds the arguments of one command as they would be given
+ * to gitlet, separated by spaces. Arguments may be quoted with double
+ * quotes, inside which a backslash escapes the next character, or with
+ * single quotes. Blank lines and lines starting with # are skipped. A
+ * line holding only "checkpoint" writes everything held back so far;
+ * the end of the script does too. Every command prints what it would
+ * print on its own, and a command that fails prints its error without
+ * stopping the script.
+ * @author Wilson Chu
+ */
+class Batch {
+
+    /** The line that writes everything held back so far. */
+    static final String CHECKPOINT = "checkpoint";
+
+    /** The commands that cannot run inside a batch. */
+    private static final Set<String> EXCLUDED = Set.of("init", "batch",
+            "serve", "watch");
+
+    /**
+     * Runs the script FILENAME, found in the working directory of
+     * REPOSITORY, against it.
+     * @param repository The repository the commands run against.
+     * @param fileName The script, or null to read it from standard input.
+     */
+    static void run(Repository repository, String fileName) {
+        if (fileName == null) {
+            run(repository, new InputStreamReader(System.in));
+            return;
+        }
+        try (Reader script = new FileReader(Utils.join(repository.root(),
+                fileName))) {
+            run(repository, script);
+        } catch (FileNotFoundException e) {
+            throw new NotFoundException("File does not exist.");
+        } catch (IOException e) {
+            throw Utils.error("Could not read %s.", fileName);
+        }
+    }
+
+    /**
+     * Runs every command of SCRIPT against REPOSITORY.
+     * @param repository The repository the commands run against.
+     * @param script The lines of the script.
+     */
+    static void run(Repository repository, Reader script) {
+        BufferedReader lines = new BufferedReader(script);
+        repository.startBatch();
+        try {
+            for (String line = lines.readLine(); line != null;
+                 line = lines.readLine()) {
+                try {
+                    runLine(repository, line);
+                } catch (GitletException e) {
+                    System.out.println(e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            throw Utils.error("Could not read the batch.");
+        } finally {
+            repository.endBatch();
+        }
+    }
+
+    /**
+     * Runs the command on LINE of a script against REPOSITORY.
+     * @param repository The repository the commands run against.
+     * @param line A line of a script.
+     */
+    private static void runLine(Repository repository, String line) {
+        if (line.isBlank() || line.strip().startsWith("#")) {
+            return;
+        }
+        String[] args = split(line);
+        if (args.length == 1 && args[0].equals(CHECKPOINT)) {
+            repository.checkpoint();
+        } else if (EXCLUDED.contains(args[0])) {
+            throw Utils.error("The %s command cannot be run in a batch.",
+                    args[0]);
+        } else {
+            Main.run(() -> repository, args);
+        }
+    }
+
+    /**
+     * Splits LINE into arguments at unquoted spaces.
+     * @param line A line of a script that is not blank.
+     * @return Its arguments.
+     */
+    static String[] split(String line) {
+        ArrayList<String> args = new ArrayList<>();
+        StringBuilder arg = null;
+        char quote = 0;
+        for (int i = 0; i < line.length(); i += 1) {
+            char c = line.charAt(i);
+            if (quote == 0 && Character.isWhitespace(c)) {
+                if (arg != null) {
+                    args.add(arg.toString());
+                    arg = null;
+                }
+                continue;
+            }
+            if (arg == null) {
+                arg = new StringBuilder();
+            }
+            if (c == quote) {
+                quote = 0;
+            } else if (quote == 0 && (c == '"' || c == '\'')) {
+                quote = c;
+            } else if (quote == '"' && c == '\\' && i + 1 < line.length()) {
+                i += 1;
+                arg.append(line.charAt(i));
+            } else {
+                arg.append(c);
+            }
+        }
+        if (quote != 0) {
+            throw Utils.error("Unterminated quote in batch line: %s", line);
+        }
+        if (arg != null) {
+            args.add(arg.toString());
+        }
+        return args.toArray(new String[0]);
+    }
+}
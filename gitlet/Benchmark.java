@@ -0,0 +1,891 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/** A benchmarking class whose main program may be invoked as follows:
+ *      java gitlet.Benchmark [NAME...]
+ *  where each NAME selects one of the benchmarks below (all of them by
+ *  default). Each benchmark builds a synthetic repository structure in a
+ *  temporary directory, times the operation under test and prints one
+ *  line per measurement.
+ *  @author Wilson Chu
+ */
+public class Benchmark {
+
+    /** The number of commits in the synthetic histories. */
+    private static final int HISTORY = 100000;
+
+    /** The number of side branches in the merge-heavy history. */
+    private static final int WIDTH = 64;
+
+    /** The number of files in the compression corpus. */
+    private static final int FILES = 512;
+
+    /** The size of each file in the compression corpus. */
+    private static final int FILE_SIZE = 64 * 1024;
+
+    /** The number of objects in the pack benchmark. */
+    private static final int OBJECTS = 20000;
+
+    /** The number of versions in the delta benchmark. */
+    private static final int VERSIONS = 200;
+
+    /** The number of directories at each level of the walk benchmark. */
+    private static final int FANOUT = 32;
+
+    /** The number of files in each directory of the walk benchmark. */
+    private static final int FILES_PER_DIRECTORY = 100;
+
+    /** The number of files in the working tree of the status benchmark. */
+    private static final int STATUS_FILES = 50000;
+
+    /** The number of threads, and of processes, in the locking test. */
+    private static final int WRITERS = 8;
+
+    /** The number of adds, and of branches, each thread of the locking
+     *  test makes. */
+    private static final int COMMANDS = 25;
+
+    /** The number of adds, and of branches, each process of the locking
+     *  test makes; each starts a JVM. */
+    private static final int PROCESS_COMMANDS = 5;
+
+    /** The number of files in the repository of the cache benchmark. */
+    private static final int CACHE_FILES = 2000;
+
+    /** The number of commits on each side of the merge in the cache
+     *  benchmark. */
+    private static final int CACHE_COMMITS = 50;
+
+    /** The number of commits in the find benchmark. */
+    private static final int FIND_COMMITS = 20000;
+
+    /** The number of distinct messages in the find benchmark. */
+    private static final int MESSAGES = 100;
+
+    /** The number of files that differ between the two branches of the
+     *  checkout benchmark. */
+    private static final int CHECKOUT_CHANGES = 3;
+
+    /** The number of timed repetitions of each measurement. */
+    private static final int REPS = 20;
+
+    /** Run the benchmarks named in NAMES, or all of them. */
+    public static void main(String... names) throws IOException {
+        if (names.length == 0) {
+            names = new String[] {"merge-base", "compression", "pack",
+                "delta", "walk", "status", "locking", "encoding", "cache",
+                "find", "search", "checkout"};
+        }
+        for (String name : names) {
+            switch (name) {
+            case "merge-base":
+                mergeBase();
+                break;
+            case "compression":
+                compression();
+                break;
+            case "pack":
+                pack();
+                break;
+            case "delta":
+                delta();
+                break;
+            case "walk":
+                walk();
+                break;
+            case "status":
+                status();
+                break;
+            case "locking":
+                locking();
+                break;
+            case "encoding":
+                encoding();
+                break;
+            case "cache":
+                cache();
+                break;
+            case "find":
+                find();
+                break;
+            case "search":
+                search();
+                break;
+            case "checkout":
+                checkout();
+                break;
+            default:
+                System.out.println("No benchmark named " + name + ".");
+            }
+        }
+    }
+
+    /**
+     * Times MergeBase against a full-history BFS over the same graph on
+     * a deep linear history and on a wide, merge-heavy history.
+     */
+    private static void mergeBase() throws IOException {
+        File file = tempFile("commit-graph");
+        CommitGraph graph = CommitGraph.create(file);
+        for (int i = 0; i < HISTORY; i += 1) {
+            graph.add(id(i), i == 0 ? null : id(i - 1), null, i);
+        }
+        graph.add(id(HISTORY), id(HISTORY - 2), null, HISTORY);
+        int tip = graph.indexOf(id(HISTORY - 1));
+        int side = graph.indexOf(id(HISTORY));
+        time("merge-base linear, split 1 back", () ->
+                MergeBase.find(graph, tip, side));
+        time("full BFS linear, split 1 back", () ->
+                fullHistorySplit(graph, tip, side));
+
+        File wideFile = tempFile("commit-graph");
+        CommitGraph wide = CommitGraph.create(wideFile);
+        String[] heads = new String[WIDTH];
+        String main = id(0);
+        wide.add(main, null, null, 0);
+        for (int b = 0; b < WIDTH; b += 1) {
+            heads[b] = main;
+        }
+        for (int i = 1; i < HISTORY; i += 1) {
+            int b = i % WIDTH;
+            String sha1 = id(i);
+            if (i % (WIDTH + 1) == 0) {
+                wide.add(sha1, main, heads[b], i);
+                main = sha1;
+            } else {
+                wide.add(sha1, heads[b], null, i);
+            }
+            heads[b] = sha1;
+        }
+        int mainHead = wide.indexOf(main);
+        int branchHead = wide.indexOf(heads[WIDTH / 2]);
+        time("merge-base wide merges", () ->
+                MergeBase.find(wide, mainHead, branchHead));
+        time("full BFS wide merges", () ->
+                fullHistorySplit(wide, mainHead, branchHead));
+    }
+
+    /**
+     * Stores a corpus of source-like text files as blobs at several
+     * compression levels, printing the disk footprint of the objects and
+     * the throughput of storing them (add) and writing them back out
+     * (checkout).
+     */
+    private static void compression() throws IOException {
+        File source = tempDir("corpus");
+        File[] files = new File[FILES];
+        long total = 0;
+        Random random = new Random(FILES);
+        for (int i = 0; i < FILES; i += 1) {
+            files[i] = Utils.join(source, "File" + i + ".java");
+            Utils.writeContents(files[i], sourceText(random, FILE_SIZE));
+            total += files[i].length();
+        }
+        String level = System.getProperty("gitlet.compression");
+        for (int compression : new int[] {0, 1, 6, 9}) {
+            System.setProperty("gitlet.compression", "" + compression);
+            File objects = tempDir("objects");
+            String[] ids = new String[FILES];
+            long start = System.nanoTime();
+            for (int i = 0; i < FILES; i += 1) {
+                ids[i] = ObjectStore.write(objects, ObjectStore.BLOB,
+                        files[i]);
+            }
+            long addNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < FILES; i += 1) {
+                ObjectStore.copyTo(objects, ObjectStore.BLOB, ids[i],
+                        files[i]);
+            }
+            long checkoutNanos = System.nanoTime() - start;
+            long footprint = 0;
+            for (String id : ids) {
+                footprint += ObjectStore.file(objects, id).length();
+            }
+            System.out.printf("level %d: %6.1f%% of %d KB, add %7.1f MB/s, "
+                    + "checkout %7.1f MB/s%n", compression,
+                    100.0 * footprint / total, total / 1024,
+                    megabytesPerSecond(total, addNanos),
+                    megabytesPerSecond(total, checkoutNanos));
+        }
+        if (level == null) {
+            System.clearProperty("gitlet.compression");
+        } else {
+            System.setProperty("gitlet.compression", level);
+        }
+    }
+
+    /**
+     * Times reading and listing a directory of small objects while they
+     * are loose and after they have been repacked.
+     */
+    private static void pack() throws IOException {
+        File objects = tempDir("objects");
+        String[] ids = new String[OBJECTS];
+        for (int i = 0; i < OBJECTS; i += 1) {
+            ids[i] = ObjectStore.write(objects, ObjectStore.COMMIT,
+                    Utils.serialize("benchmark commit " + i));
+        }
+        Runnable read = () -> {
+            for (int i = 0; i < OBJECTS; i += 1) {
+                ObjectStore.read(objects, ObjectStore.COMMIT,
+                        ids[(int) ((i * 7919L) % OBJECTS)]);
+            }
+        };
+        time("read " + OBJECTS + " loose objects", read);
+        time("list " + OBJECTS + " loose objects", () ->
+                ObjectStore.list(objects));
+        ObjectStore.repack(objects, List.of());
+        time("read " + OBJECTS + " packed objects", read);
+        time("list " + OBJECTS + " packed objects", () ->
+                ObjectStore.list(objects));
+    }
+
+    /**
+     * Stores VERSIONS versions of a one megabyte file, each a small edit
+     * of the one before, and compares their footprint loose and packed
+     * with deltas, along with the time taken to read them back.
+     */
+    private static void delta() throws IOException {
+        File objects = tempDir("objects");
+        Random random = new Random(VERSIONS);
+        StringBuilder text = new StringBuilder(sourceText(random,
+                1 << 20));
+        ArrayList<String> history = new ArrayList<>();
+        for (int v = 0; v < VERSIONS; v += 1) {
+            int line = random.nextInt(text.length() - 100);
+            text.replace(line, line + 20, "edit " + v + " " + line);
+            history.add(ObjectStore.write(objects, ObjectStore.BLOB,
+                    text.toString().getBytes(StandardCharsets.UTF_8)));
+        }
+        Runnable readAll = () -> {
+            for (String sha1 : history) {
+                ObjectStore.read(objects, ObjectStore.BLOB, sha1);
+            }
+        };
+        System.out.printf("%d loose versions: %d KB%n", VERSIONS,
+                footprint(objects) / 1024);
+        time("read " + VERSIONS + " loose versions", readAll);
+        long start = System.nanoTime();
+        ObjectStore.repack(objects, List.of(history));
+        System.out.printf("repack with deltas: %d ms%n",
+                (System.nanoTime() - start) / 1000000);
+        System.out.printf("%d packed versions: %d KB%n", VERSIONS,
+                footprint(objects) / 1024);
+        time("read " + VERSIONS + " packed versions", readAll);
+        time("read newest packed version", () ->
+                ObjectStore.read(objects, ObjectStore.BLOB,
+                        history.get(VERSIONS - 1)));
+    }
+
+    /**
+     * Builds a working tree of FANOUT * FANOUT directories, two levels
+     * deep, holding FILES_PER_DIRECTORY files each, and times listing it
+     * with WorkingTree on one thread and on every core.
+     */
+    private static void walk() throws IOException {
+        File root = tempDir("worktree");
+        for (int i = 0; i < FANOUT; i += 1) {
+            for (int j = 0; j < FANOUT; j += 1) {
+                File dir = Utils.join(root, "dir" + i, "sub" + j);
+                dir.mkdirs();
+                for (int k = 0; k < FILES_PER_DIRECTORY; k += 1) {
+                    Files.createFile(Utils.join(dir, "file" + k).toPath());
+                }
+            }
+        }
+        Utils.writeContents(Utils.join(root, WorkingTree.IGNORE_FILE),
+                "*.tmp\nbuild/\n");
+        int files = WorkingTree.files(root, "",
+                ForkJoinPool.commonPool()).size();
+        ForkJoinPool single = new ForkJoinPool(1);
+        time("walk " + files + " files, 1 thread", () ->
+                WorkingTree.files(root, "", single));
+        time("walk " + files + " files, "
+                + ForkJoinPool.commonPool().getParallelism() + " threads",
+                () -> WorkingTree.files(root, "",
+                        ForkJoinPool.commonPool()));
+        single.shutdown();
+    }
+
+    /**
+     * Builds a working tree of STATUS_FILES tracked files and times the
+     * comparison status makes between it and the head commit, first with
+     * an empty index, then with a full one as more and more files are
+     * changed, both when every file is stat'ed and when a watcher lists
+     * the changed files.
+     */
+    private static void status() throws IOException {
+        File root = tempDir("status");
+        HashMap<String, String> tracked = new HashMap<>();
+        for (int i = 0; i < STATUS_FILES; i += 1) {
+            String path = "dir" + (i / FILES_PER_DIRECTORY / 10) + "/file"
+                    + i + ".txt";
+            File file = Utils.join(root, path);
+            file.getParentFile().mkdirs();
+            Utils.writeContents(file, "file " + i + "\n");
+            tracked.put(path, Blobs.hash(file));
+        }
+        File indexFile = tempFile("index");
+        File blobs = tempDir("blobs");
+        Stage stage = new Stage();
+        long start = System.nanoTime();
+        Index index = Index.load(indexFile, blobs);
+        Watcher.Changes unwatched = new Watcher.Changes(null, null);
+        stage.scan(root, tracked, index, unwatched);
+        System.out.printf("status %d files, empty index: %d ms%n",
+                STATUS_FILES, (System.nanoTime() - start) / 1000000);
+        index.save();
+        HashSet<String> changed = new HashSet<>();
+        for (int target : new int[] {0, 100, 1000, 10000}) {
+            for (int i = changed.size(); i < target; i += 1) {
+                String path = "dir" + (i / FILES_PER_DIRECTORY / 10)
+                        + "/file" + i + ".txt";
+                Utils.writeContents(Utils.join(root, path),
+                        "changed " + i + "\n");
+                changed.add(path);
+            }
+            Watcher.Changes watched = new Watcher.Changes("", changed);
+            time("status " + STATUS_FILES + " files, " + changed.size()
+                    + " changed", () -> stage.scan(root, tracked,
+                    Index.load(indexFile, blobs), unwatched));
+            time("watched status, " + changed.size() + " changed", () ->
+                    stage.scan(root, tracked, Index.load(indexFile, blobs),
+                            watched));
+        }
+    }
+
+    /**
+     * A stress test of the repository lock. WRITERS threads, each with a
+     * Repository of its own, add COMMANDS files each to one repository
+     * and create COMMANDS branches each, all at once; then WRITERS
+     * processes add PROCESS_COMMANDS files and branches each. Every add
+     * and every branch rewrites the stage, so an update lost between two
+     * of them would be missing from the stage at the end; we report the
+     * time taken and fail if anything is missing.
+     */
+    private static void locking() throws IOException {
+        File root = tempDir("locking");
+        Repository.init(root);
+        for (int w = 0; w < 2 * WRITERS; w += 1) {
+            for (int i = 0; i < COMMANDS; i += 1) {
+                Utils.writeContents(Utils.join(root, "f" + w + "-" + i),
+                        "file " + w + " " + i + "\n");
+            }
+        }
+        long start = System.nanoTime();
+        ArrayList<Thread> threads = new ArrayList<>();
+        ArrayList<RuntimeException> errors = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w += 1) {
+            int writer = w;
+            Thread thread = new Thread(() -> {
+                try {
+                    Repository repository = Repository.open(root);
+                    for (int i = 0; i < COMMANDS; i += 1) {
+                        repository.add("f" + writer + "-" + i);
+                        repository.branch("b" + writer + "-" + i);
+                    }
+                } catch (RuntimeException e) {
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            join(thread);
+        }
+        if (!errors.isEmpty()) {
+            throw errors.get(0);
+        }
+        checkStaged(root, "threads", COMMANDS, WRITERS * COMMANDS,
+                System.nanoTime() - start);
+
+        start = System.nanoTime();
+        threads.clear();
+        for (int w = WRITERS; w < 2 * WRITERS; w += 1) {
+            int writer = w;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < PROCESS_COMMANDS; i += 1) {
+                    gitlet(root, "add", "f" + writer + "-" + i);
+                    gitlet(root, "branch", "b" + writer + "-" + i);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            join(thread);
+        }
+        checkStaged(root, "processes", PROCESS_COMMANDS,
+                WRITERS * (COMMANDS + PROCESS_COMMANDS),
+                System.nanoTime() - start);
+    }
+
+    /**
+     * Checks that the repository ROOT has EXPECTED files staged and
+     * EXPECTED branches besides master, and prints the time ELAPSED that
+     * WRITERS writers of kind KIND took to run COMMANDS adds and
+     * branches each.
+     * @param root The working directory of the repository.
+     * @param kind What the writers were.
+     * @param commands The number of adds each writer ran.
+     * @param expected The number of files staged by every writer so far.
+     * @param elapsed The time they took in nanoseconds.
+     */
+    private static void checkStaged(File root, String kind, int commands,
+                                    int expected, long elapsed) {
+        Stage stage = Repository.open(root).getStagingArea();
+        int staged = stage.getStagedFilesHashMap().size();
+        int branches = stage.getBranches().size() - 1;
+        System.out.printf("locking %d %s x %d adds and branches: %d ms, "
+                + "%d of %d files staged, %d of %d branches%n", WRITERS,
+                kind, commands, elapsed / 1000000, staged, expected,
+                branches, expected);
+        if (staged != expected || branches != expected) {
+            throw new IllegalStateException("Updates to the stage were "
+                    + "lost.");
+        }
+    }
+
+    /**
+     * Runs gitlet with the arguments ARGS in a process of its own whose
+     * working directory is ROOT, and waits for it.
+     * @param root A working directory.
+     * @param args The arguments of a command.
+     */
+    private static void gitlet(File root, String... args) {
+        ArrayList<String> command = new ArrayList<>(List.of(
+                ProcessHandle.current().info().command().orElse("java"),
+                "-cp", System.getProperty("java.class.path"),
+                "gitlet.Main"));
+        command.addAll(Arrays.asList(args));
+        try {
+            Process process = new ProcessBuilder(command).directory(root)
+                    .redirectErrorStream(true).start();
+            byte[] output = process.getInputStream().readAllBytes();
+            if (process.waitFor() != 0 || output.length != 0) {
+                throw new IllegalStateException("gitlet "
+                        + String.join(" ", args) + " failed: "
+                        + new String(output, StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not run gitlet.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for THREAD to finish.
+     * @param thread A thread we started.
+     */
+    private static void join(Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the total size of the files in DIR and its subdirectories.
+     * @param dir A directory.
+     * @return The number of bytes its files hold.
+     */
+    private static long footprint(File dir) {
+        long total = 0;
+        for (File file : dir.listFiles()) {
+            total += file.isDirectory() ? footprint(file) : file.length();
+        }
+        return total;
+    }
+
+    /**
+     * Returns SIZE bytes of text that look roughly like Java source,
+     * drawn from RANDOM.
+     * @param random The source of randomness.
+     * @param size The number of bytes wanted.
+     * @return The text.
+     */
+    private static String sourceText(Random random, int size) {
+        String[] words = {"public", "private", "static", "final", "int",
+            "String", "return", "if", "else", "for", "while", "new",
+            "null", "this", "void", "class", "=", "==", "+", "(", ")",
+            "{", "}", ";", "commit", "branch", "blob", "stage", "file",
+            "name", "sha1", "result", "index", "size", "get", "put"};
+        StringBuilder text = new StringBuilder(size);
+        while (text.length() < size) {
+            text.append("    ");
+            for (int n = 3 + random.nextInt(8); n > 0; n -= 1) {
+                text.append(words[random.nextInt(words.length)]).append(' ');
+            }
+            text.append('\n');
+        }
+        text.setLength(size);
+        return text.toString();
+    }
+
+    /**
+     * Returns the throughput of handling BYTES bytes in NANOS nanoseconds.
+     * @param bytes The number of bytes handled.
+     * @param nanos The time taken.
+     * @return The throughput in megabytes per second.
+     */
+    private static double megabytesPerSecond(long bytes, long nanos) {
+        return bytes / (1024.0 * 1024.0) / (nanos / 1e9);
+    }
+
+    /**
+     * The split point algorithm MergeBase replaced: a full BFS from both
+     * heads, keeping the common commit closest to COMMIT1.
+     * @param graph The commit graph.
+     * @param commit1 The index of the first head.
+     * @param commit2 The index of the second head.
+     * @return The index of the split point.
+     */
+    private static int fullHistorySplit(CommitGraph graph, int commit1,
+                                        int commit2) {
+        int[] depth = new int[graph.size()];
+        Arrays.fill(depth, -1);
+        depth[commit1] = 0;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(commit1);
+        while (!queue.isEmpty()) {
+            int commit = queue.remove();
+            for (int parent : graph.parents(commit)) {
+                if (depth[parent] == -1) {
+                    depth[parent] = depth[commit] + 1;
+                    queue.add(parent);
+                }
+            }
+        }
+        BitSet seen = new BitSet(graph.size());
+        seen.set(commit2);
+        queue.add(commit2);
+        int best = CommitGraph.NONE;
+        while (!queue.isEmpty()) {
+            int commit = queue.remove();
+            if (depth[commit] != -1 && (best == CommitGraph.NONE
+                    || depth[commit] < depth[best])) {
+                best = commit;
+            }
+            for (int parent : graph.parents(commit)) {
+                if (!seen.get(parent)) {
+                    seen.set(parent);
+                    queue.add(parent);
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Compares the encoding of Encoding with Java serialization on a
+     * stage of STATUS_FILES staged files and on a merge commit of them,
+     * printing the size of each form and timing how long it takes to
+     * read back.
+     */
+    private static void encoding() throws IOException {
+        Stage stage = new Stage();
+        for (int i = 0; i < STATUS_FILES; i += 1) {
+            String path = "dir" + (i / FILES_PER_DIRECTORY / 10) + "/file"
+                    + i + ".txt";
+            stage.getStagedFilesHashMap().put(path, id(i));
+            stage.getStagedFiles().add(path);
+        }
+        for (int i = 0; i < WIDTH; i += 1) {
+            stage.getBranches().add("branch" + i);
+        }
+        File trees = tempDir("trees");
+        Commit commit = new Commit("merge", stage, id(0),
+                new Commit(trees));
+        commit.setSecondaryCommit(id(1));
+        compareEncodings("stage of " + STATUS_FILES, stage.encode(),
+                Utils.serialize(stage), Stage::decode, Stage.class);
+        compareEncodings("commit", commit.encode(),
+                Utils.serialize(commit), Commit::decode, Commit.class);
+    }
+
+    /**
+     * Prints the sizes of ENCODED and SERIALIZED, two forms of the same
+     * record of class TYPE, and times reading each back.
+     * @param <T> The type of the record.
+     * @param what The name of the record, for the labels.
+     * @param encoded The record as written by Encoding.
+     * @param serialized The record as written by Java serialization.
+     * @param decoder Reads the record from ENCODED.
+     * @param type The class of the record.
+     */
+    private static <T extends Serializable> void compareEncodings(
+            String what, byte[] encoded, byte[] serialized,
+            Function<byte[], T> decoder, Class<T> type) {
+        System.out.printf("%s: %d bytes encoded, %d serialized%n", what,
+                encoded.length, serialized.length);
+        time("decode " + what, () -> decoder.apply(encoded));
+        time("deserialize " + what, () ->
+                Utils.deserialize(serialized, type));
+    }
+
+    /**
+     * Builds a repository of CACHE_FILES files with two branches of
+     * CACHE_COMMITS commits each, then merges them and resets back with
+     * empty commit and tree caches, printing how long each took and how
+     * many of its reads the caches answered.
+     */
+    private static void cache() throws IOException {
+        File root = tempDir("cache");
+        Repository repository = Repository.init(root);
+        for (int i = 0; i < CACHE_FILES; i += 1) {
+            String path = "dir" + (i / FILES_PER_DIRECTORY) + "/file" + i
+                    + ".txt";
+            File file = Utils.join(root, path);
+            file.getParentFile().mkdirs();
+            Utils.writeContents(file, "file " + i + "\n");
+            repository.add(path);
+        }
+        String base = repository.commit("base");
+        repository.branch("side");
+        for (String branch : new String[] {"side", "master"}) {
+            repository.checkoutBranch(branch);
+            int offset = branch.equals("master") ? 0 : CACHE_FILES / 2;
+            for (int c = 0; c < CACHE_COMMITS; c += 1) {
+                String path = "dir" + ((offset + c) / FILES_PER_DIRECTORY)
+                        + "/file" + (offset + c) + ".txt";
+                Utils.writeContents(Utils.join(root, path),
+                        branch + " " + c + "\n");
+                repository.add(path);
+                repository.commit(branch + " " + c);
+            }
+        }
+        timeCached(repository, "merge", () -> repository.merge("side"));
+        timeCached(repository, "reset", () -> repository.reset(base));
+    }
+
+    /**
+     * Stores a linear history of FIND_COMMITS commits sharing MESSAGES
+     * messages, then times finding the commits of one message by reading
+     * every commit, as find used to, and through a freshly loaded message
+     * index, as a new process would.
+     */
+    private static void find() throws IOException {
+        File commits = messageHistory();
+        File indexFile = Utils.join(tempDir("index"), "message-index");
+        MessageIndex.rebuild(indexFile, commits);
+        String message = "message " + (MESSAGES / 2);
+        time("find by reading " + FIND_COMMITS + " commits", () -> {
+            ObjectStore.commitCache(commits).clear();
+            int found = 0;
+            for (String sha1 : ObjectStore.list(commits)) {
+                if (ObjectStore.readCommit(commits, sha1)
+                        .getCommitMessage().equals(message)) {
+                    found += 1;
+                }
+            }
+            if (found != FIND_COMMITS / MESSAGES) {
+                throw new IllegalStateException("Found " + found + ".");
+            }
+        });
+        time("find through the message index", () -> {
+            int found = MessageIndex.load(indexFile, commits).find(message)
+                    .size();
+            if (found != FIND_COMMITS / MESSAGES) {
+                throw new IllegalStateException("Found " + found + ".");
+            }
+        });
+    }
+
+    /**
+     * Stores the history of the find benchmark and prints how many of its
+     * commits per second a search by regular expression gets through on
+     * one thread and on every core, and how long a search stopping at
+     * its first ten matches takes.
+     */
+    private static void search() throws IOException {
+        File commits = messageHistory();
+        CommitGraph graph = CommitGraph.load(Utils.join(tempDir("graph"),
+                "commit-graph"), commits);
+        Search search = new Search(Pattern.compile("message 4\\d$"),
+                Long.MIN_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE);
+        ForkJoinPool serial = new ForkJoinPool(1);
+        for (ForkJoinPool pool : new ForkJoinPool[] {serial,
+            ForkJoinPool.commonPool()}) {
+            int threads = pool.getParallelism();
+            long start = System.nanoTime();
+            for (int i = 0; i < REPS; i += 1) {
+                int found = search.run(commits, graph, pool, sha1 -> { });
+                if (found != FIND_COMMITS / 10) {
+                    throw new IllegalStateException("Found " + found
+                            + ".");
+                }
+            }
+            long nanos = (System.nanoTime() - start) / REPS;
+            System.out.printf("search %d commits, %d threads: %d commits/s"
+                    + "%n", graph.size(), threads,
+                    graph.size() * 1000000000L / nanos);
+        }
+        serial.shutdown();
+        Search first = new Search(Pattern.compile("message 4\\d$"),
+                Long.MIN_VALUE, Long.MAX_VALUE, 10);
+        time("search stopping after 10 matches", () ->
+                first.run(commits, graph, ForkJoinPool.commonPool(),
+                        sha1 -> { }));
+    }
+
+    /**
+     * Commits STATUS_FILES files to a repository, then changes
+     * CHECKOUT_CHANGES of them on master, and times checking out the
+     * other branch and master again, which only has to write those.
+     */
+    private static void checkout() throws IOException {
+        File root = tempDir("checkout");
+        Repository repository = Repository.init(root);
+        for (int i = 0; i < STATUS_FILES; i += 1) {
+            File file = Utils.join(root, "dir" + (i / FILES_PER_DIRECTORY)
+                    + "/file" + i + ".txt");
+            file.getParentFile().mkdirs();
+            Utils.writeContents(file, "file " + i + "\n");
+        }
+        repository.add(".");
+        repository.commit("base");
+        repository.branch("side");
+        for (int c = 0; c < CHECKOUT_CHANGES; c += 1) {
+            int i = c * STATUS_FILES / CHECKOUT_CHANGES;
+            String path = "dir" + (i / FILES_PER_DIRECTORY) + "/file" + i
+                    + ".txt";
+            Utils.writeContents(Utils.join(root, path), "changed\n");
+            repository.add(path);
+        }
+        repository.commit("changes");
+        time("checkout " + STATUS_FILES + " files, " + CHECKOUT_CHANGES
+                + " differing, both ways", () -> {
+                repository.checkoutBranch("side");
+                repository.checkoutBranch("master");
+            });
+    }
+
+    /**
+     * Stores a linear history of FIND_COMMITS commits sharing MESSAGES
+     * messages, each commit changing one file, after an initial commit.
+     * @return The directory holding the commits.
+     */
+    private static File messageHistory() throws IOException {
+        File commits = tempDir("commits");
+        File trees = tempDir("trees");
+        Commit parent = new Commit(trees);
+        String parentSHA1 = ObjectStore.writeCommit(commits, parent);
+        for (int i = 0; i < FIND_COMMITS; i += 1) {
+            Stage stage = new Stage();
+            stage.getStagedFilesHashMap().put("file" + (i % MESSAGES),
+                    id(i));
+            Commit commit = new Commit("message " + (i % MESSAGES), stage,
+                    parentSHA1, parent);
+            parentSHA1 = ObjectStore.writeCommit(commits, commit);
+            parent = commit;
+        }
+        return commits;
+    }
+
+    /**
+     * Empties the caches of REPOSITORY, runs BODY once and prints how long
+     * it took and the hits and misses of each cache under the label NAME.
+     * @param repository The repository BODY works on.
+     * @param name The label of the measurement.
+     * @param body The operation being measured.
+     */
+    private static void timeCached(Repository repository, String name,
+                                   Runnable body) {
+        ObjectCache<Commit> commits = repository.commitCache();
+        ObjectCache<Tree> trees = repository.treeCache();
+        commits.clear();
+        trees.clear();
+        long start = System.nanoTime();
+        body.run();
+        System.out.printf("%s: %d ms, commits %d hits %d misses, trees %d "
+                + "hits %d misses%n", name,
+                (System.nanoTime() - start) / 1000000, commits.hits(),
+                commits.misses(), trees.hits(), trees.misses());
+    }
+
+    /**
+     * Runs BODY once to warm up, then REPS more times, and prints the
+     * average time per run under the label NAME.
+     * @param name The label of the measurement.
+     * @param body The operation being timed.
+     */
+    private static void time(String name, Runnable body) {
+        body.run();
+        long start = System.nanoTime();
+        for (int i = 0; i < REPS; i += 1) {
+            body.run();
+        }
+        long micros = (System.nanoTime() - start) / REPS / 1000;
+        System.out.printf("%-40s %10d us%n", name, micros);
+    }
+
+    /**
+     * Returns a fresh temporary file that is deleted when we exit.
+     * @param prefix The prefix of the file name.
+     * @return The temporary file.
+     */
+    private static File tempFile(String prefix) throws IOException {
+        File file = Files.createTempFile(prefix, null).toFile();
+        file.deleteOnExit();
+        return file;
+    }
+
+    /**
+     * Returns a fresh temporary directory whose contents are deleted when
+     * we exit.
+     * @param prefix The prefix of the directory name.
+     * @return The temporary directory.
+     */
+    private static File tempDir(String prefix) throws IOException {
+        File dir = Files.createTempDirectory(prefix).toFile();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            deleteAll(dir);
+        }));
+        return dir;
+    }
+
+    /**
+     * Deletes FILE and, if it is a directory, everything inside it.
+     * @param file The file to delete.
+     */
+    private static void deleteAll(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteAll(child);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * Returns a synthetic SHA1 for the Ith commit of a benchmark.
+     * @param i The number of the commit.
+     * @return A 40 digit hexadecimal id.
+     */
+    private static String id(int i) {
+        return Utils.sha1("benchmark commit " + i);
+    }
+}
@@ -0,0 +1,214 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Reads and writes the blobs in the .gitlet/blobs folder of a repository,
+ * which every method below takes as DIR. A blob holds
+ * the raw bytes of a file and is named by their SHA1; see ObjectStore
+ * for how it is laid out on disk. Files are always streamed through a
+ * fixed-size buffer, so the heap used by add and checkout does not depend
+ * on the size of the file, binary files are stored byte for byte, and
+ * files larger than 2GB can be tracked.
+ * @author Wilson Chu
+ */
+class Blobs {
+
+    /** The most files a checkout writes at the same time. */
+    private static final int WRITERS = 8;
+
+    /** The most files a single writer task writes without splitting
+     *  them with another writer. */
+    private static final int BATCH = 16;
+
+    /** The threads checkouts write their files on, started as needed. */
+    private static final ForkJoinPool WRITER_POOL =
+            new ForkJoinPool(WRITERS);
+
+    /**
+     * Stores the contents of FILE as a blob.
+     * @param dir A blobs folder.
+     * @param file The file we want to store.
+     * @return The SHA1 of the contents of FILE.
+     */
+    static String store(File dir, File file) {
+        return ObjectStore.write(dir, ObjectStore.BLOB, file);
+    }
+
+    /**
+     * Stores CONTENTS as a blob.
+     * @param dir A blobs folder.
+     * @param contents The bytes we want to store.
+     * @return The SHA1 of CONTENTS.
+     */
+    static String store(File dir, byte[] contents) {
+        return ObjectStore.write(dir, ObjectStore.BLOB, contents);
+    }
+
+    /**
+     * Returns the SHA1 of the contents of FILE without storing them.
+     * @param file The file we want to hash.
+     * @return The SHA1 FILE would be stored under.
+     */
+    static String hash(File file) {
+        return ObjectStore.hash(file);
+    }
+
+    /**
+     * Overwrites FILE with the contents of the blob SHA1, creating the
+     * directories above it if needed.
+     * @param dir A blobs folder.
+     * @param sha1 The SHA1 of a blob.
+     * @param file The file we are writing.
+     */
+    static void restore(File dir, String sha1, File file) {
+        file.getParentFile().mkdirs();
+        ObjectStore.copyTo(dir, ObjectStore.BLOB, sha1, file);
+    }
+
+    /**
+     * Overwrites the file at each path of FILES in the working directory
+     * ROOT with the blob it maps to, on up to WRITERS threads once there
+     * are more than BATCH files. The directories above the files are all
+     * created first, on the calling thread.
+     * @param dir A blobs folder.
+     * @param root The top of a working directory.
+     * @param files The paths of files relative to ROOT, mapped to the
+     *              SHA1s of their blobs.
+     */
+    static void restore(File dir, File root, Map<String, String> files) {
+        String[] paths = files.keySet().toArray(new String[0]);
+        String[] blobs = files.values().toArray(new String[0]);
+        HashSet<File> parents = new HashSet<>();
+        for (String path : paths) {
+            File parent = new File(root, path).getParentFile();
+            if (parents.add(parent)) {
+                parent.mkdirs();
+            }
+        }
+        if (paths.length <= BATCH) {
+            write(dir, root, paths, blobs, 0, paths.length);
+            return;
+        }
+        try {
+            WRITER_POOL.invoke(new Writer(dir, root, paths, blobs, 0,
+                    paths.length));
+        } catch (GitletException e) {
+            /* The pool rethrows a copy of an exception thrown by one of
+             * its threads, without its message. */
+            throw e.getCause() instanceof GitletException
+                    ? (GitletException) e.getCause() : e;
+        }
+    }
+
+    /**
+     * Writes the files at PATHS from index START up to END in the working
+     * directory ROOT with the blobs at the same indices of BLOBS.
+     * @param dir A blobs folder.
+     * @param root The top of a working directory.
+     * @param paths Paths relative to ROOT, whose directories exist.
+     * @param blobs The SHA1s of their blobs.
+     * @param start The index of the first file.
+     * @param end The index just past the last file.
+     */
+    private static void write(File dir, File root, String[] paths,
+                              String[] blobs, int start, int end) {
+        for (int i = start; i < end; i += 1) {
+            ObjectStore.copyTo(dir, ObjectStore.BLOB, blobs[i],
+                    new File(root, paths[i]));
+        }
+    }
+
+    /**
+     * Returns the contents of the blob SHA1. Only meant for blobs we have
+     * to combine in memory, such as the two sides of a merge conflict.
+     * @param dir A blobs folder.
+     * @param sha1 The SHA1 of a blob.
+     * @return The contents of the blob.
+     */
+    static byte[] read(File dir, String sha1) {
+        return ObjectStore.read(dir, ObjectStore.BLOB, sha1);
+    }
+
+    /**
+     * Returns the concatenation of PARTS, each of which is either a String
+     * or a byte array.
+     * @param parts The pieces of the result.
+     * @return The UTF-8 encoding of the Strings interleaved with the byte
+     *         arrays.
+     */
+    static byte[] concat(Object... parts) {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        for (Object part : parts) {
+            if (part instanceof byte[]) {
+                result.writeBytes((byte[]) part);
+            } else {
+                result.writeBytes(((String) part).getBytes(
+                        StandardCharsets.UTF_8));
+            }
+        }
+        return result.toByteArray();
+    }
+
+    /** The task writing a range of the files of a checkout. */
+    private static class Writer extends RecursiveAction {
+
+        /** The blobs folder. */
+        private final File _dir;
+
+        /** The top of the working directory. */
+        private final File _root;
+
+        /** The paths of every file of the checkout. */
+        private final String[] _paths;
+
+        /** The SHA1s of their blobs. */
+        private final String[] _blobs;
+
+        /** The index of the first file we write. */
+        private final int _start;
+
+        /** The index just past the last file we write. */
+        private final int _end;
+
+        /**
+         * A task writing the files at PATHS from index START up to END in
+         * the working directory ROOT with the blobs of DIR at the same
+         * indices of BLOBS.
+         * @param dir A blobs folder.
+         * @param root The top of a working directory.
+         * @param paths Paths relative to ROOT.
+         * @param blobs The SHA1s of their blobs.
+         * @param start The index of the first file.
+         * @param end The index just past the last file.
+         */
+        Writer(File dir, File root, String[] paths, String[] blobs,
+               int start, int end) {
+            _dir = dir;
+            _root = root;
+            _paths = paths;
+            _blobs = blobs;
+            _start = start;
+            _end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (_end - _start > BATCH) {
+                int middle = (_start + _end) >>> 1;
+                invokeAll(new Writer(_dir, _root, _paths, _blobs, _start,
+                                middle),
+                        new Writer(_dir, _root, _paths, _blobs, middle,
+                                _end));
+                return;
+            }
+            write(_dir, _root, _paths, _blobs, _start, _end);
+        }
+    }
+}
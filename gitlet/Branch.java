@@ -1,16 +1,22 @@
 package gitlet;
 
-import java.io.File;
-import java.io.IOException;
 import java.io.Serializable;
-import java.text.SimpleDateFormat;
 
 /**
- * This class allows us to create branches in gitlet.
+ * This class allows us to create branches in gitlet. A branch is stored
+ * in the encoding described in Encoding as its name and the SHA1 of its
+ * head commit.
  * @author Wilson Chu
  */
 public class Branch implements Serializable {
 
+    /** Pinned so that .gitlet folders written by older versions of this
+     *  class can still be read. */
+    private static final long serialVersionUID = 6757448858182407503L;
+
+    /** The magic number of encoded branches. */
+    private static final int MAGIC = 0x67627268;
+
     /** This variable points to the HEAD of THIS branch. This is the
      *  SHA1 of the commit file.
      */
@@ -26,83 +32,30 @@ public class Branch implements Serializable {
      */
     public Branch(String name) {
         _name = name;
-        createLogFile();
-    }
-
-    /**
-     * Method for initializing a log file for a new branch.
-     * This method should only be called inside constructors as once
-     * a log file is created for a branch, that will be the only
-     * log file used from henceforth. This method also updates the
-     * LOGFILE String which is the name of the file that contains the
-     * logging information for this branch's commits.
-     */
-    private void createLogFile() {
-        File newLog = Utils.join(Repo.BRANCHES, _name + "Log.txt");
-        try {
-            if (!newLog.createNewFile()) {
-                System.out.println("A log file corresponding to branch "
-                        + _name + " already exists. Cannot create "
-                        + "a new log file.");
-            }
-        } catch (IOException e) {
-            System.out.println("There is an issue in createLogFile where "
-                        + "a new log file is not being created.");
-        }
     }
 
     /**
-     * This method takes a commit labeled COMMIT and adds it into the log txt
-     * file associated with this branch as well as the global log file.
-     * @param commit The commit object we are adding to our log file
+     * Returns the encoding of THIS branch.
+     * @return The encoded branch.
      */
-    public void log(Commit commit) {
-        File logFile = Utils.join(Repo.BRANCHES, _name + "Log.txt");
-        String logFileContents = Utils.readContentsAsString(logFile);
-        SimpleDateFormat properDateFormat = new SimpleDateFormat(
-                "EEE MMM d HH:mm:ss yyyy Z");
-        String globalLogContents = Utils.readContentsAsString(Repo.GLOBALLOG);
-        String newInfo = Repo.SEPERATOR + "\n"
-                + "commit " + headCommit + "\n" + "Date: ";
-        newInfo += properDateFormat.format(commit.getNow()) + "\n";
-        newInfo += commit.getCommitMessage();
-        newInfo += "\n\n";
-        String newGlobalInfo = newInfo;
-        newInfo += logFileContents;
-        newGlobalInfo += globalLogContents;
-        Utils.writeContents(logFile, newInfo);
-        Utils.writeContents(Repo.GLOBALLOG, newGlobalInfo);
+    byte[] encode() {
+        return Encoding.encode(MAGIC, out -> {
+            Encoding.writeString(out, _name);
+            Encoding.writeString(out, headCommit);
+        });
     }
 
     /**
-     * This method is very similar to the log method, except it is specifically
-     * tailored for the merge command. It passes in a predetermined commit
-     * message and makes sure to write the correct content to our log file.
-     * @param commit The new commit that we are creating.
-     * @param commit1SHA1 The SHA1 code of the HEAD commit of our
-     *                    current branch.
-     * @param commit2SHA1 The SHA1 code of the OTHER commit of our
-     *                    incoming branch.
+     * Returns the branch encoded in BYTES.
+     * @param bytes An encoded branch.
+     * @return The branch.
      */
-    public void mergeLog(Commit commit, String commit1SHA1,
-                         String commit2SHA1) {
-        File logFile = Utils.join(Repo.BRANCHES, _name + "Log.txt");
-        String logFileContents = Utils.readContentsAsString(logFile);
-        SimpleDateFormat properDateFormat = new SimpleDateFormat(
-                "EEE MMM d HH:mm:ss yyyy Z");
-        String globalLogContents = Utils.readContentsAsString(Repo.GLOBALLOG);
-        String newInfo = Repo.SEPERATOR + "\n"
-                + "commit " + headCommit + "\n";
-        newInfo += "Merge: " + commit1SHA1.substring(0, 7) + " "
-                + commit2SHA1.substring(0, 7) + "\n" + "Date: ";
-        newInfo += properDateFormat.format(commit.getNow()) + "\n";
-        newInfo += commit.getCommitMessage();
-        newInfo += "\n\n";
-        String newGlobalInfo = newInfo;
-        newInfo += logFileContents;
-        newGlobalInfo += globalLogContents;
-        Utils.writeContents(logFile, newInfo);
-        Utils.writeContents(Repo.GLOBALLOG, newGlobalInfo);
+    static Branch decode(byte[] bytes) {
+        return Encoding.decode(bytes, MAGIC, "branch", in -> {
+            Branch branch = new Branch(Encoding.readString(in));
+            branch.headCommit = Encoding.readString(in);
+            return branch;
+        });
     }
 
     /**
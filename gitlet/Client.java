@@ -0,0 +1,42 @@
+package gitlet;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+
+/** A thin driver for Gitlet that sends its command to the server of the
+ *  repository in the CWD, if there is one, and prints what comes back.
+ *  Without a server, the command runs in this process as with Main.
+ *  @author Wilson Chu
+ */
+public class Client {
+
+    /** Usage: java gitlet.Client ARGS, where ARGS contains
+     *  <COMMAND> <OPERAND> .... */
+    public static void main(String... args) {
+        SocketChannel server = null;
+        if (!Server.isLocal(args)) {
+            server = Server.connect();
+        }
+        if (server == null) {
+            Main.main(args);
+            return;
+        }
+        try (SocketChannel channel = server) {
+            DataOutputStream out = new DataOutputStream(
+                    Channels.newOutputStream(channel));
+            out.writeInt(args.length);
+            for (String arg : args) {
+                out.writeUTF(arg);
+            }
+            out.flush();
+            Channels.newInputStream(channel).transferTo(System.out);
+            System.out.flush();
+        } catch (IOException e) {
+            /* The server may have run the command already, so running it
+             * again here could do it twice. */
+            System.out.println("Lost the connection to the server.");
+        }
+    }
+}
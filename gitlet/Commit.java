@@ -1,24 +1,48 @@
 package gitlet;
 
+import java.io.File;
 import java.io.Serializable;
+import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
- * This class handles committing files from the staging are.
+ * This class handles committing files from the staging are. A commit is
+ * stored in the encoding described in Encoding: its message, its time in
+ * milliseconds since the epoch, its two parents and its tree, and its id
+ * is the SHA1 of those bytes. Commits written before that encoding were
+ * serialized, which is why THIS class is still Serializable.
  * @author Wilson Chu
  */
 public class Commit implements Serializable {
 
+    /** Pinned so that .gitlet folders written by older versions of this
+     *  class can still be read. */
+    private static final long serialVersionUID = -8518243905799958572L;
+
+    /** The magic number of encoded commits. */
+    private static final int MAGIC = 0x67636d74;
+
     /** The message that the user passes in or the default message. */
     private final String commitMessage;
 
     /**
-     * A HashMap containing a key that is the file name the user chose
-     * and the values are the SHA1 file titles.
+     * The files tracked by commits made before trees were introduced, as
+     * a map from file names to blob ids. Null in every other commit; kept
+     * so that Migration can read those commits.
      */
-    private HashMap<String, String> blobs = new HashMap<>();
+    private HashMap<String, String> blobs;
+
+    /** The id of the root tree holding the files tracked by THIS commit. */
+    private String tree;
+
+    /** The files of our tree, flattened the first time they are asked
+     *  for. Volatile since a cached commit is shared between threads. */
+    private transient volatile HashMap<String, String> files;
+
+    /** The trees folder of the repository THIS commit was read from. */
+    private transient volatile File trees;
 
     /** The exact time when THIS commit object is initialized. */
     private final Date now;
@@ -34,53 +58,159 @@ public class Commit implements Serializable {
      * being used is unique - "initial commit". The blobs object
      * will be null because there are no files being tracked
      * in the initial commit.
+     * @param treesDir The trees folder of our repository.
      */
-    public Commit() {
+    public Commit(File treesDir) {
         commitMessage = "initial commit";
         now = new Date(0);
+        trees = treesDir;
+        tree = Tree.build(trees, new HashMap<>());
     }
 
     /**
      * A constructor for commit that is used for all other cases when
-     * creating a new commit.
+     * creating a new commit. The caller is left to clear STAGINGAREA.
      * @param message The message the user inputs.
+     * @param stagingArea The files to commit.
+     * @param parent The SHA1 of the commit we are made on top of.
+     * @param parentCommit The commit PARENT, as read from our repository.
      */
-    public Commit(String message) {
+    public Commit(String message, Stage stagingArea, String parent,
+                  Commit parentCommit) {
         if (message.equals("")) {
-            System.out.println("Please enter a commit message.");
-            System.exit(0);
+            throw Utils.error("Please enter a commit message.");
         }
-        Stage stagingArea = Repo.getStagingArea();
         if (stagingArea.getStagedFilesHashMap().size() == 0
             && stagingArea.getRemovedFilesHashMap().size() == 0) {
-            System.out.println("No changes added to the commit.");
-            System.exit(0);
+            throw Utils.error("No changes added to the commit.");
         }
         commitMessage = message;
         now = new Date();
-        prevCommit = Repo.getActiveBranch().getHeadCommit();
-        Commit oldCommit = Utils.readObject(Utils.join(Repo.COMMITS,
-                Repo.getActiveBranch().getHeadCommit()), Commit.class);
-        blobs = new HashMap<>(oldCommit.blobs);
-        commit();
+        prevCommit = parent;
+        trees = parentCommit.trees;
+        commit(stagingArea, parentCommit.tree);
     }
 
     /**
-     * A helper function for the constructors. Takes files from the
-     * staging area and commits them.
+     * A helper function for the constructors. Takes files from
+     * STAGINGAREA and commits them on top of the tree OLDTREE, sharing
+     * every directory the staging area does not touch.
+     * @param stagingArea The files to commit.
+     * @param oldTree The id of the root tree of our previous commit.
      */
-    private void commit() {
-        if (Repo.getStagingArea().getStagedFilesHashMap().size() > 0) {
-            blobs.putAll(Repo.getStagingArea().getStagedFilesHashMap());
-        }
-        if (Repo.getStagingArea().getRemovedFilesHashMap().size() > 0) {
-            for (Map.Entry<String, String> blob
-                    : Repo.getStagingArea()
-                    .getRemovedFilesHashMap().entrySet()) {
-                blobs.remove(blob.getKey(), blob.getValue());
+    private void commit(Stage stagingArea, String oldTree) {
+        HashMap<String, String> changes = new HashMap<>(
+                stagingArea.getStagedFilesHashMap());
+        for (Map.Entry<String, String> blob
+                : stagingArea.getRemovedFilesHashMap().entrySet()) {
+            String current = changes.containsKey(blob.getKey())
+                    ? changes.get(blob.getKey())
+                    : Tree.lookup(trees, oldTree, blob.getKey());
+            if (blob.getValue().equals(current)) {
+                changes.put(blob.getKey(), null);
             }
         }
-        Repo.clearStagingArea();
+        tree = Tree.update(trees, oldTree, changes);
+    }
+
+    /**
+     * A commit read back from its encoding.
+     * @param message Its message.
+     * @param time Its time.
+     * @param parent The SHA1 of its first parent, or null.
+     * @param secondary The SHA1 of its second parent, or null.
+     * @param root The id of its root tree.
+     */
+    private Commit(String message, Date time, String parent,
+                   String secondary, String root) {
+        commitMessage = message;
+        now = time;
+        prevCommit = parent;
+        secondaryCommit = secondary;
+        tree = root;
+    }
+
+    /**
+     * Returns the encoding of THIS commit, whose SHA1 is its id.
+     * @return The encoded commit.
+     */
+    byte[] encode() {
+        if (blobs != null) {
+            throw new IllegalStateException("A commit made before trees "
+                    + "cannot be encoded.");
+        }
+        return Encoding.encode(MAGIC, out -> {
+            Encoding.writeString(out, commitMessage);
+            out.writeLong(now.getTime());
+            Encoding.writeString(out, prevCommit);
+            Encoding.writeString(out, secondaryCommit);
+            Encoding.writeString(out, tree);
+        });
+    }
+
+    /**
+     * Returns the commit encoded in BYTES.
+     * @param bytes An encoded commit.
+     * @return The commit.
+     */
+    static Commit decode(byte[] bytes) {
+        return Encoding.decode(bytes, MAGIC, "commit", in -> new Commit(
+                Encoding.readString(in), new Date(in.readLong()),
+                Encoding.readString(in), Encoding.readString(in),
+                Encoding.readString(in)));
+    }
+
+    /**
+     * Returns the message of the commit encoded in BYTES, without
+     * decoding the fields that follow it.
+     * @param bytes An encoded commit.
+     * @return Its message.
+     */
+    static String decodeMessage(byte[] bytes) {
+        return Encoding.peek(bytes, MAGIC, "commit", Encoding::readString);
+    }
+
+    /**
+     * Tells THIS commit, just read from disk, which trees folder holds its
+     * tree.
+     * @param treesDir The trees folder of our repository.
+     */
+    void setTrees(File treesDir) {
+        trees = treesDir;
+    }
+
+    /**
+     * Moves the files of a commit made before trees were introduced into
+     * a tree. Does nothing to any other commit.
+     * @return True if THIS commit was changed.
+     */
+    boolean convertToTree() {
+        if (blobs == null) {
+            return false;
+        }
+        tree = Tree.build(trees, blobs);
+        blobs = null;
+        files = null;
+        return true;
+    }
+
+    /**
+     * Formats THIS commit the way it is shown by the LOG and GLOBAL-LOG
+     * commands.
+     * @param sha1 The SHA1 of THIS commit.
+     * @return The log entry for THIS commit.
+     */
+    public String logEntry(String sha1) {
+        SimpleDateFormat properDateFormat = new SimpleDateFormat(
+                "EEE MMM d HH:mm:ss yyyy Z");
+        String entry = Repository.SEPERATOR + "\n" + "commit " + sha1 + "\n";
+        if (secondaryCommit != null) {
+            entry += "Merge: " + prevCommit.substring(0, 7) + " "
+                    + secondaryCommit.substring(0, 7) + "\n";
+        }
+        entry += "Date: " + properDateFormat.format(now) + "\n";
+        entry += commitMessage + "\n\n";
+        return entry;
     }
 
     /**
@@ -100,11 +230,44 @@ public class Commit implements Serializable {
     }
 
     /**
-     * A getter method to get the blobs tracked by this commit.
+     * A getter method to get the blobs tracked by this commit. The map is
+     * built from our tree the first time it is asked for; callers that
+     * only need a few files should use getBlob instead. The map is shared
+     * by every reader of THIS commit and must not be changed.
      * @return A HashMap object of our blobs.
      */
     public HashMap<String, String> getBlobs() {
-        return blobs;
+        if (blobs != null) {
+            return blobs;
+        }
+        if (files == null) {
+            files = Tree.flatten(trees, tree);
+        }
+        return files;
+    }
+
+    /**
+     * A getter method for the blob of a single file tracked by this
+     * commit, which only reads the trees on the way to it.
+     * @param fileName The path of the file.
+     * @return The id of its blob, or null if we do not track it.
+     */
+    public String getBlob(String fileName) {
+        if (blobs != null) {
+            return blobs.get(fileName);
+        }
+        if (files != null) {
+            return files.get(fileName);
+        }
+        return Tree.lookup(trees, tree, fileName);
+    }
+
+    /**
+     * A getter method for the root tree of this commit.
+     * @return The id of our root tree.
+     */
+    public String getTree() {
+        return tree;
     }
 
     /**
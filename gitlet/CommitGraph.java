@@ -0,0 +1,508 @@
+package gitlet;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A compact, memory-mapped view of the commit history. The commit-graph
+ * file stores one fixed-size record per commit holding its SHA1, the
+ * record indices of its parents, its timestamp and its generation number
+ * (one more than the largest generation of its parents, the initial
+ * commit having generation 1). Records are appended as commits are made,
+ * always after the records of their parents, so history traversals only
+ * ever touch this file instead of opening and deserializing every
+ * ancestor commit.
+ * @author Wilson Chu
+ */
+class CommitGraph {
+
+    /** The value stored in place of a parent index when there is none. */
+    static final int NONE = -1;
+
+    /** The magic number at the start of every commit-graph file. */
+    private static final int MAGIC = 0x43475048;
+
+    /** The version of the commit-graph file format. */
+    private static final int VERSION = 1;
+
+    /** The size of the header of the commit-graph file. */
+    private static final int HEADER = 8;
+
+    /** The number of bytes in a binary SHA1. */
+    private static final int ID_BYTES = 20;
+
+    /** The size of a single commit record. */
+    private static final int RECORD = ID_BYTES + 4 + 4 + 8 + 4;
+
+    /** The offset of the first parent index inside a record. */
+    private static final int PARENT1 = ID_BYTES;
+
+    /** The offset of the second parent index inside a record. */
+    private static final int PARENT2 = PARENT1 + 4;
+
+    /** The offset of the timestamp inside a record. */
+    private static final int TIME = PARENT2 + 4;
+
+    /** The offset of the generation number inside a record. */
+    private static final int GENERATION = TIME + 8;
+
+    /** The digits used when printing a SHA1. */
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /** The file backing THIS graph. */
+    private final File _file;
+
+    /** The mapped contents of _file. */
+    private MappedByteBuffer _buffer;
+
+    /** The number of commits in THIS graph. */
+    private int _size;
+
+    /** An open-addressing hash table from SHA1 to record index plus one,
+     *  zero marking an empty slot. */
+    private int[] _table;
+
+    /** The record indices of THIS graph in the order of their SHA1s, or
+     *  null until resolve needs them after the graph last grew. */
+    private int[] _sorted;
+
+    /**
+     * Opens the commit graph stored in FILE.
+     * @param file The commit-graph file.
+     */
+    private CommitGraph(File file) {
+        _file = file;
+        map();
+    }
+
+    /**
+     * Loads the commit graph stored in FILE. If FILE does not exist yet,
+     * it is rebuilt from the commits stored in COMMITSDIR.
+     * @param file The commit-graph file.
+     * @param commitsDir The directory holding our encoded commits.
+     * @return The loaded commit graph.
+     */
+    static CommitGraph load(File file, File commitsDir) {
+        if (!file.exists()) {
+            rebuild(file, commitsDir);
+        }
+        return new CommitGraph(file);
+    }
+
+    /**
+     * Creates an empty commit graph in FILE, overwriting it if it exists.
+     * @param file The commit-graph file.
+     * @return The empty commit graph.
+     */
+    static CommitGraph create(File file) {
+        Utils.replaceContents(file, ByteBuffer.allocate(HEADER)
+                .putInt(MAGIC).putInt(VERSION).array());
+        return new CommitGraph(file);
+    }
+
+    /**
+     * Writes a fresh commit-graph file into FILE containing every commit
+     * in COMMITSDIR, parents before children.
+     * @param file The commit-graph file.
+     * @param commitsDir The directory holding our encoded commits.
+     */
+    private static void rebuild(File file, File commitsDir) {
+        HashMap<String, Commit> commits = new HashMap<>();
+        for (String sha1 : ObjectStore.list(commitsDir)) {
+            commits.put(sha1, ObjectStore.readCommit(commitsDir, sha1));
+        }
+        CommitGraph graph = create(file);
+        for (String sha1 : commits.keySet()) {
+            graph.addWithParents(sha1, commits);
+        }
+    }
+
+    /**
+     * Adds the commit SHA1 taken from COMMITS to THIS graph after adding
+     * all of its missing ancestors.
+     * @param sha1 The SHA1 of the commit we want to add.
+     * @param commits Every commit of the repository, keyed by SHA1.
+     */
+    private void addWithParents(String sha1, HashMap<String, Commit> commits) {
+        ArrayList<String> stack = new ArrayList<>();
+        stack.add(sha1);
+        while (!stack.isEmpty()) {
+            String top = stack.get(stack.size() - 1);
+            if (indexOf(top) != NONE) {
+                stack.remove(stack.size() - 1);
+                continue;
+            }
+            Commit commit = commits.get(top);
+            boolean ready = true;
+            for (String parent : new String[] {commit.getPrevCommit(),
+                commit.getSecondaryCommit()}) {
+                if (parent != null && indexOf(parent) == NONE) {
+                    stack.add(parent);
+                    ready = false;
+                }
+            }
+            if (ready) {
+                stack.remove(stack.size() - 1);
+                add(top, commit);
+            }
+        }
+    }
+
+    /**
+     * Appends the commit SHA1 to THIS graph. Both parents of COMMIT must
+     * already be part of the graph.
+     * @param sha1 The SHA1 of the new commit.
+     * @param commit The new commit.
+     */
+    void add(String sha1, Commit commit) {
+        add(sha1, commit.getPrevCommit(), commit.getSecondaryCommit(),
+                commit.getNow().getTime());
+    }
+
+    /**
+     * Appends the commit SHA1 with parents PREV and SECONDARY, made at
+     * TIMESTAMP, to THIS graph. Both parents must already be part of the
+     * graph.
+     * @param sha1 The SHA1 of the new commit.
+     * @param prev The SHA1 of its first parent, or null.
+     * @param secondary The SHA1 of its second parent, or null.
+     * @param timestamp The commit time in milliseconds since the epoch.
+     */
+    void add(String sha1, String prev, String secondary, long timestamp) {
+        if (indexOf(sha1) != NONE) {
+            return;
+        }
+        int parent1 = parentIndex(prev);
+        int parent2 = parentIndex(secondary);
+        int generation = 1;
+        if (parent1 != NONE) {
+            generation = Math.max(generation, generation(parent1) + 1);
+        }
+        if (parent2 != NONE) {
+            generation = Math.max(generation, generation(parent2) + 1);
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD);
+        record.put(ObjectStore.toBytes(sha1)).putInt(parent1).putInt(parent2)
+                .putLong(timestamp).putInt(generation);
+        try (FileOutputStream out = new FileOutputStream(_file, true)) {
+            out.write(record.array());
+        } catch (IOException e) {
+            throw Utils.error("Could not append to the commit graph.");
+        }
+        map();
+    }
+
+    /**
+     * Returns the record index of the parent commit SHA1.
+     * @param sha1 The SHA1 of a parent, or null.
+     * @return The index of SHA1, or NONE if SHA1 is null.
+     */
+    private int parentIndex(String sha1) {
+        if (sha1 == null) {
+            return NONE;
+        }
+        int index = indexOf(sha1);
+        if (index == NONE) {
+            throw Utils.error("Parent %s is missing from the commit graph.",
+                    sha1);
+        }
+        return index;
+    }
+
+    /**
+     * Picks up the records other processes appended to _file since it
+     * was last mapped.
+     * @return False if _file was replaced or truncated instead, in which
+     *         case THIS graph must be loaded again.
+     */
+    boolean refresh() {
+        long length = _file.length();
+        if (length < _buffer.capacity()) {
+            return false;
+        }
+        if (length > _buffer.capacity()) {
+            map();
+        }
+        return true;
+    }
+
+    /**
+     * Maps _file into memory and adds any records appended since the
+     * last mapping to the lookup table, growing it when it gets too full.
+     */
+    private void map() {
+        try (RandomAccessFile raf = new RandomAccessFile(_file, "r")) {
+            _buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0,
+                    raf.length());
+        } catch (IOException e) {
+            throw Utils.error("Could not read the commit graph.");
+        }
+        if (_buffer.capacity() < HEADER || _buffer.getInt(0) != MAGIC
+                || _buffer.getInt(4) != VERSION) {
+            throw Utils.error("Corrupted commit graph.");
+        }
+        int oldSize = _size;
+        _size = (_buffer.capacity() - HEADER) / RECORD;
+        if (_size != oldSize) {
+            _sorted = null;
+        }
+        if (_table == null || 2 * _size > _table.length) {
+            _table = new int[Integer.highestOneBit(
+                    Math.max(_size, 1) * 2) * 2];
+            oldSize = 0;
+        }
+        for (int i = oldSize; i < _size; i += 1) {
+            int slot = _buffer.getInt(offset(i)) & (_table.length - 1);
+            while (_table[slot] != 0) {
+                slot = (slot + 1) & (_table.length - 1);
+            }
+            _table[slot] = i + 1;
+        }
+    }
+
+    /**
+     * Returns the record index of the commit SHA1.
+     * @param sha1 The full SHA1 of a commit.
+     * @return The index of the commit, or NONE if it is not in THIS graph.
+     */
+    int indexOf(String sha1) {
+        if (sha1 == null || sha1.length() != 2 * ID_BYTES) {
+            return NONE;
+        }
+        byte[] id = ObjectStore.toBytes(sha1);
+        int slot = ByteBuffer.wrap(id).getInt() & (_table.length - 1);
+        while (_table[slot] != 0) {
+            int index = _table[slot] - 1;
+            if (idEquals(index, id)) {
+                return index;
+            }
+            slot = (slot + 1) & (_table.length - 1);
+        }
+        return NONE;
+    }
+
+    /**
+     * Returns the full SHA1 of the only commit whose SHA1 starts with
+     * PREFIX, found by binary search over the records of THIS graph
+     * sorted by SHA1.
+     * @param prefix An abbreviated or full SHA1.
+     * @return The full SHA1, or null if no commit's SHA1 starts with
+     *         PREFIX.
+     * @throws GitletException If several commits' SHA1s start with PREFIX.
+     */
+    String resolve(String prefix) {
+        if (prefix.length() > 2 * ID_BYTES || !isHex(prefix)) {
+            return null;
+        }
+        if (prefix.length() == 2 * ID_BYTES) {
+            return indexOf(prefix) == NONE ? null : prefix;
+        }
+        int[] sorted = sorted();
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comparePrefix(sorted[mid], prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        if (low == sorted.length || comparePrefix(sorted[low], prefix) != 0) {
+            return null;
+        }
+        if (low + 1 < sorted.length
+                && comparePrefix(sorted[low + 1], prefix) == 0) {
+            throw Utils.error("Commit id %s is ambiguous.", prefix);
+        }
+        return sha1(sorted[low]);
+    }
+
+    /**
+     * Returns the record indices of THIS graph sorted by SHA1, sorting
+     * them the first time they are needed after the graph grew.
+     * @return The sorted indices.
+     */
+    private int[] sorted() {
+        if (_sorted == null) {
+            Integer[] indices = new Integer[_size];
+            for (int i = 0; i < _size; i += 1) {
+                indices[i] = i;
+            }
+            Arrays.sort(indices, this::compareIds);
+            _sorted = new int[_size];
+            for (int i = 0; i < _size; i += 1) {
+                _sorted[i] = indices[i];
+            }
+        }
+        return _sorted;
+    }
+
+    /**
+     * Compares the SHA1s of the records at INDEX1 and INDEX2 as unsigned
+     * bytes, which orders them as their hexadecimal forms.
+     * @param index1 The index of a record.
+     * @param index2 The index of another record.
+     * @return A negative number, zero or a positive number as the first
+     *         SHA1 is less than, equal to or greater than the second.
+     */
+    private int compareIds(int index1, int index2) {
+        int offset1 = offset(index1);
+        int offset2 = offset(index2);
+        for (int i = 0; i < ID_BYTES; i += 1) {
+            int diff = (_buffer.get(offset1 + i) & 0xff)
+                    - (_buffer.get(offset2 + i) & 0xff);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Compares the first digits of the SHA1 of the record at INDEX with
+     * the hexadecimal PREFIX.
+     * @param index The index of a record.
+     * @param prefix Some lowercase hexadecimal digits.
+     * @return A negative number, zero or a positive number as the SHA1 of
+     *         the record sorts before the SHA1s starting with PREFIX,
+     *         starts with PREFIX or sorts after them.
+     */
+    private int comparePrefix(int index, String prefix) {
+        int offset = offset(index);
+        for (int i = 0; i < prefix.length(); i += 1) {
+            int b = _buffer.get(offset + i / 2) & 0xff;
+            int digit = i % 2 == 0 ? b >>> 4 : b & 0xf;
+            int diff = digit - Character.digit(prefix.charAt(i), 16);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns whether S only holds lowercase hexadecimal digits.
+     * @param s A string.
+     * @return True if S could start a SHA1.
+     */
+    private static boolean isHex(String s) {
+        for (int i = 0; i < s.length(); i += 1) {
+            char c = s.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether the record at INDEX holds the binary SHA1 ID.
+     * @param index The index of a record.
+     * @param id A binary SHA1.
+     * @return True if the SHA1 of the record is ID.
+     */
+    private boolean idEquals(int index, byte[] id) {
+        int offset = offset(index);
+        for (int i = 0; i < ID_BYTES; i += 1) {
+            if (_buffer.get(offset + i) != id[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of commits in THIS graph.
+     * @return The number of commits.
+     */
+    int size() {
+        return _size;
+    }
+
+    /**
+     * Returns the SHA1 of the commit at INDEX.
+     * @param index The index of a record.
+     * @return The SHA1 as a hexadecimal String.
+     */
+    String sha1(int index) {
+        char[] result = new char[2 * ID_BYTES];
+        int offset = offset(index);
+        for (int i = 0; i < ID_BYTES; i += 1) {
+            int b = _buffer.get(offset + i) & 0xff;
+            result[2 * i] = HEX[b >>> 4];
+            result[2 * i + 1] = HEX[b & 0xf];
+        }
+        return new String(result);
+    }
+
+    /**
+     * Returns the index of the first parent of the commit at INDEX.
+     * @param index The index of a record.
+     * @return The index of the first parent, or NONE.
+     */
+    int parent1(int index) {
+        return _buffer.getInt(offset(index) + PARENT1);
+    }
+
+    /**
+     * Returns the index of the second parent of the commit at INDEX.
+     * @param index The index of a record.
+     * @return The index of the second parent, or NONE.
+     */
+    int parent2(int index) {
+        return _buffer.getInt(offset(index) + PARENT2);
+    }
+
+    /**
+     * Returns the parents of the commit at INDEX.
+     * @param index The index of a record.
+     * @return A list of zero, one or two parent indices.
+     */
+    List<Integer> parents(int index) {
+        ArrayList<Integer> result = new ArrayList<>(2);
+        if (parent1(index) != NONE) {
+            result.add(parent1(index));
+        }
+        if (parent2(index) != NONE) {
+            result.add(parent2(index));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the timestamp of the commit at INDEX.
+     * @param index The index of a record.
+     * @return The commit time in milliseconds since the epoch.
+     */
+    long timestamp(int index) {
+        return _buffer.getLong(offset(index) + TIME);
+    }
+
+    /**
+     * Returns the generation number of the commit at INDEX.
+     * @param index The index of a record.
+     * @return The generation number.
+     */
+    int generation(int index) {
+        return _buffer.getInt(offset(index) + GENERATION);
+    }
+
+    /**
+     * Returns the byte offset of the record at INDEX.
+     * @param index The index of a record.
+     * @return The offset of the record inside _buffer.
+     */
+    private static int offset(int index) {
+        return HEADER + index * RECORD;
+    }
+}
@@ -0,0 +1,262 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Binary deltas describing one byte array in terms of another, used to
+ * store similar objects in packs. A delta starts with the length of the
+ * base and the length of the result, each as a variable-length integer,
+ * followed by instructions. An instruction byte with its high bit set
+ * copies a range of the base, given by a variable-length offset and
+ * length that follow it; any other instruction byte N, from 1 to 127,
+ * inserts the N bytes that follow it.
+ *
+ * Deltas are found by indexing the base in BLOCK byte blocks and
+ * scanning the result with a rolling hash of the same width. At each
+ * position we try up to MAX_CHAIN base blocks with the same hash and
+ * copy the longest match, so repetitive files still give short deltas
+ * and creating a delta takes time roughly linear in the sizes of both
+ * arrays.
+ * @author Wilson Chu
+ */
+class Delta {
+
+    /** The width of the blocks we match between base and result. */
+    private static final int BLOCK = 16;
+
+    /** The multiplier of our rolling hash. */
+    private static final int PRIME = 31;
+
+    /** PRIME raised to the power BLOCK - 1, modulo 2^32. */
+    private static final int HIGH_POWER = power(PRIME, BLOCK - 1);
+
+    /** The odd multiplier spreading hashes over the table. */
+    private static final int SPREAD = 0x9e3779b1;
+
+    /** The number of equally hashed base blocks tried at each position. */
+    private static final int MAX_CHAIN = 16;
+
+    /** The instruction bit marking a copy from the base. */
+    private static final int COPY = 0x80;
+
+    /** The longest insertion a single instruction can hold. */
+    private static final int MAX_INSERT = 0x7f;
+
+    /**
+     * Returns a delta that turns BASE into RESULT.
+     * @param base The bytes the delta refers to.
+     * @param result The bytes the delta produces.
+     * @return The delta.
+     */
+    static byte[] create(byte[] base, byte[] result) {
+        ByteArrayOutputStream delta = new ByteArrayOutputStream();
+        writeVarint(delta, base.length);
+        writeVarint(delta, result.length);
+        int blocks = base.length / BLOCK;
+        int[] heads = new int[Integer.highestOneBit(Math.max(1, blocks) * 2)];
+        int[] next = new int[blocks];
+        for (int block = 0; block < blocks; block += 1) {
+            int slot = slot(hash(base, block * BLOCK), heads.length);
+            next[block] = heads[slot];
+            heads[slot] = block + 1;
+        }
+        int insertStart = 0;
+        int pos = 0;
+        int hash = result.length >= BLOCK ? hash(result, 0) : 0;
+        while (pos + BLOCK <= result.length) {
+            int bestStart = -1;
+            int bestTarget = 0;
+            int bestLength = 0;
+            int chain = heads[slot(hash, heads.length)];
+            for (int tries = 0; chain != 0 && tries < MAX_CHAIN;
+                 tries += 1) {
+                int start = (chain - 1) * BLOCK;
+                chain = next[chain - 1];
+                int target = pos;
+                while (start > 0 && target > insertStart
+                        && base[start - 1] == result[target - 1]) {
+                    start -= 1;
+                    target -= 1;
+                }
+                int length = 0;
+                while (start + length < base.length
+                        && target + length < result.length
+                        && base[start + length] == result[target + length]) {
+                    length += 1;
+                }
+                if (target + length >= pos + BLOCK && length > bestLength) {
+                    bestStart = start;
+                    bestTarget = target;
+                    bestLength = length;
+                }
+            }
+            if (bestStart >= 0) {
+                insert(delta, result, insertStart, bestTarget);
+                delta.write(COPY);
+                writeVarint(delta, bestStart);
+                writeVarint(delta, bestLength);
+                pos = bestTarget + bestLength;
+                insertStart = pos;
+                if (pos + BLOCK <= result.length) {
+                    hash = hash(result, pos);
+                }
+                continue;
+            }
+            if (pos + BLOCK < result.length) {
+                hash = roll(hash, result[pos], result[pos + BLOCK]);
+            }
+            pos += 1;
+        }
+        insert(delta, result, insertStart, result.length);
+        return delta.toByteArray();
+    }
+
+    /**
+     * Returns the result of applying DELTA to BASE.
+     * @param base The bytes the delta refers to.
+     * @param delta A delta made by create from BASE.
+     * @return The bytes DELTA produces.
+     */
+    static byte[] apply(byte[] base, byte[] delta) {
+        int[] pos = {0};
+        if (readVarint(delta, pos) != base.length) {
+            throw Utils.error("Delta does not match its base.");
+        }
+        long length = readVarint(delta, pos);
+        if (length > Integer.MAX_VALUE) {
+            throw Utils.error("Corrupted delta.");
+        }
+        byte[] result = new byte[(int) length];
+        int out = 0;
+        try {
+            while (pos[0] < delta.length) {
+                int op = delta[pos[0]] & 0xff;
+                pos[0] += 1;
+                if ((op & COPY) != 0) {
+                    int offset = (int) readVarint(delta, pos);
+                    int size = (int) readVarint(delta, pos);
+                    System.arraycopy(base, offset, result, out, size);
+                    out += size;
+                } else if (op != 0) {
+                    System.arraycopy(delta, pos[0], result, out, op);
+                    pos[0] += op;
+                    out += op;
+                } else {
+                    throw Utils.error("Corrupted delta.");
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw Utils.error("Corrupted delta.");
+        }
+        if (out != result.length) {
+            throw Utils.error("Corrupted delta.");
+        }
+        return result;
+    }
+
+    /**
+     * Returns the hash of the BLOCK bytes of DATA starting at START.
+     * @param data The bytes being hashed.
+     * @param start The start of the block.
+     * @return The hash of the block.
+     */
+    private static int hash(byte[] data, int start) {
+        int hash = 0;
+        for (int i = start; i < start + BLOCK; i += 1) {
+            hash = hash * PRIME + (data[i] & 0xff);
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the hash of the block one byte after the one whose hash is
+     * HASH, which started with OUT and is followed by IN.
+     * @param hash The hash of the previous block.
+     * @param out The first byte of the previous block.
+     * @param in The byte following the previous block.
+     * @return The hash of the next block.
+     */
+    private static int roll(int hash, byte out, byte in) {
+        return (hash - (out & 0xff) * HIGH_POWER) * PRIME + (in & 0xff);
+    }
+
+    /**
+     * Returns the slot of a table of SIZE entries that HASH belongs in.
+     * @param hash The hash of a block.
+     * @param size The size of the table, a power of two.
+     * @return The slot, taken from the high bits of a multiplicative
+     *         hash so that every byte of the block counts.
+     */
+    private static int slot(int hash, int size) {
+        return (hash * SPREAD) >>> (Integer.SIZE
+                - Integer.numberOfTrailingZeros(size)) & (size - 1);
+    }
+
+    /**
+     * Writes instructions inserting the bytes of DATA from START to END.
+     * @param delta The delta being written.
+     * @param data The bytes being inserted.
+     * @param start The first byte to insert.
+     * @param end The end of the bytes to insert.
+     */
+    private static void insert(ByteArrayOutputStream delta, byte[] data,
+                               int start, int end) {
+        while (start < end) {
+            int size = Math.min(MAX_INSERT, end - start);
+            delta.write(size);
+            delta.write(data, start, size);
+            start += size;
+        }
+    }
+
+    /**
+     * Writes VALUE to OUT seven bits at a time, least significant first,
+     * with the high bit of each byte set if more bytes follow.
+     * @param out The stream to write to.
+     * @param value A non-negative number.
+     */
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while (value >= COPY) {
+            out.write((int) (value & MAX_INSERT) | COPY);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Reads a number written by writeVarint from DATA at POS[0], moving
+     * POS[0] past it.
+     * @param data The bytes being read.
+     * @param pos A one element array holding the read position.
+     * @return The number.
+     */
+    private static long readVarint(byte[] data, int[] pos) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (pos[0] >= data.length) {
+                break;
+            }
+            int b = data[pos[0]] & 0xff;
+            pos[0] += 1;
+            value |= (long) (b & MAX_INSERT) << shift;
+            if ((b & COPY) == 0) {
+                return value;
+            }
+        }
+        throw Utils.error("Corrupted delta.");
+    }
+
+    /**
+     * Returns BASE raised to the power EXPONENT, modulo 2^32.
+     * @param base The base.
+     * @param exponent A non-negative exponent.
+     * @return The power.
+     */
+    private static int power(int base, int exponent) {
+        int result = 1;
+        for (int i = 0; i < exponent; i += 1) {
+            result *= base;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,260 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The binary encoding of commits, branches and the stage. Each record
+ * starts with the four byte magic number of its type and the version of
+ * the encoding, followed by its fields in a fixed order. A string is
+ * written as the int length of its UTF-8 bytes, or -1 for null, followed
+ * by those bytes; a map as its int size followed by its keys and values
+ * in sorted key order; a list as its int size followed by its elements.
+ * Ints and longs are big-endian. The encoding of a record only depends
+ * on its fields, so commits can be named by the SHA1 of theirs.
+ * @author Wilson Chu
+ */
+class Encoding {
+
+    /** The version of the encoding we write. */
+    static final int VERSION = 1;
+
+    /** Writes the fields of a record. */
+    @FunctionalInterface
+    interface Writer {
+        /**
+         * Writes the fields of a record to OUT.
+         * @param out The stream the record goes to.
+         * @throws IOException Never, since OUT writes to memory.
+         */
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Reads the fields of a record.
+     * @param <T> The type of the record.
+     */
+    @FunctionalInterface
+    interface Reader<T> {
+        /**
+         * Reads the fields of a record from IN.
+         * @param in The stream holding the record.
+         * @return The record.
+         * @throws IOException If the record is cut short.
+         */
+        T read(DataInputStream in) throws IOException;
+    }
+
+    /**
+     * Returns the record of type MAGIC whose fields FIELDS writes.
+     * @param magic The magic number of the type of the record.
+     * @param fields Writes the fields of the record.
+     * @return The encoded record.
+     */
+    static byte[] encode(int magic, Writer fields) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(magic);
+            out.writeByte(VERSION);
+            fields.write(out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Returns the record of type MAGIC encoded in BYTES, whose fields
+     * FIELDS reads.
+     * @param <T> The type of the record.
+     * @param bytes An encoded record.
+     * @param magic The magic number of the type of the record.
+     * @param what The name of the type of the record, for errors.
+     * @param fields Reads the fields of the record.
+     * @return The record.
+     */
+    static <T> T decode(byte[] bytes, int magic, String what,
+                        Reader<T> fields) {
+        return read(bytes, magic, what, fields, true);
+    }
+
+    /**
+     * Returns what FIELDS reads from the start of the record of type MAGIC
+     * encoded in BYTES, leaving its other fields undecoded.
+     * @param <T> The type of what is read.
+     * @param bytes An encoded record.
+     * @param magic The magic number of the type of the record.
+     * @param what The name of the type of the record, for errors.
+     * @param fields Reads the first fields of the record.
+     * @return What FIELDS read.
+     */
+    static <T> T peek(byte[] bytes, int magic, String what,
+                      Reader<T> fields) {
+        return read(bytes, magic, what, fields, false);
+    }
+
+    /**
+     * Returns what FIELDS reads from the record of type MAGIC encoded in
+     * BYTES, which must read all of it if WHOLE.
+     * @param <T> The type of what is read.
+     * @param bytes An encoded record.
+     * @param magic The magic number of the type of the record.
+     * @param what The name of the type of the record, for errors.
+     * @param fields Reads the fields of the record.
+     * @param whole True if FIELDS reads every field of the record.
+     * @return What FIELDS read.
+     */
+    private static <T> T read(byte[] bytes, int magic, String what,
+                              Reader<T> fields, boolean whole) {
+        try (DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(bytes))) {
+            if (in.readInt() != magic) {
+                throw Utils.error("Corrupted %s.", what);
+            }
+            if (in.readUnsignedByte() != VERSION) {
+                throw Utils.error("This %s was written by a newer version "
+                        + "of gitlet.", what);
+            }
+            T result = fields.read(in);
+            if (whole && in.read() != -1) {
+                throw Utils.error("Corrupted %s.", what);
+            }
+            return result;
+        } catch (IOException e) {
+            throw Utils.error("Corrupted %s.", what);
+        }
+    }
+
+    /**
+     * Returns whether BYTES were written by Java serialization, as every
+     * record was before this encoding.
+     * @param bytes The contents of a record.
+     * @return True if BYTES start with the serialization magic number.
+     */
+    static boolean isSerialized(byte[] bytes) {
+        return bytes.length >= 2 && (bytes[0] & 0xff) == 0xac
+                && (bytes[1] & 0xff) == 0xed;
+    }
+
+    /**
+     * Writes the string S, which may be null, to OUT.
+     * @param out A stream.
+     * @param s A string or null.
+     * @throws IOException Never, since OUT writes to memory.
+     */
+    static void writeString(DataOutputStream out, String s)
+            throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by writeString from IN.
+     * @param in A stream.
+     * @return The string, or null.
+     * @throws IOException If IN ends too soon.
+     */
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Bad string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes MAP to OUT in sorted key order.
+     * @param out A stream.
+     * @param map A map whose keys and values are not null.
+     * @throws IOException Never, since OUT writes to memory.
+     */
+    static void writeMap(DataOutputStream out, Map<String, String> map)
+            throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<String, String> entry
+                : new TreeMap<>(map).entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+    }
+
+    /**
+     * Reads a map written by writeMap from IN.
+     * @param in A stream.
+     * @return The map.
+     * @throws IOException If IN ends too soon.
+     */
+    static HashMap<String, String> readMap(DataInputStream in)
+            throws IOException {
+        HashMap<String, String> result = new HashMap<>();
+        for (int n = readSize(in); n > 0; n -= 1) {
+            String key = readString(in);
+            result.put(key, readString(in));
+        }
+        return result;
+    }
+
+    /**
+     * Writes LIST to OUT in order.
+     * @param out A stream.
+     * @param list A list of strings.
+     * @throws IOException Never, since OUT writes to memory.
+     */
+    static void writeList(DataOutputStream out, List<String> list)
+            throws IOException {
+        out.writeInt(list.size());
+        for (String s : list) {
+            writeString(out, s);
+        }
+    }
+
+    /**
+     * Reads a list written by writeList from IN.
+     * @param in A stream.
+     * @return The list.
+     * @throws IOException If IN ends too soon.
+     */
+    static ArrayList<String> readList(DataInputStream in)
+            throws IOException {
+        int size = readSize(in);
+        ArrayList<String> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i += 1) {
+            result.add(readString(in));
+        }
+        return result;
+    }
+
+    /**
+     * Reads the size of a map or list from IN. Every entry takes at least
+     * four bytes, so a size larger than what is left of IN is corrupted.
+     * @param in A stream.
+     * @return The size.
+     * @throws IOException If IN ends too soon or the size is impossible.
+     */
+    private static int readSize(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        if (size < 0 || size > in.available() / 4) {
+            throw new IOException("Bad size " + size);
+        }
+        return size;
+    }
+}
@@ -0,0 +1,448 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A cache of the blob ids of the files in our working directory, stored
+ * in .gitlet/index. For each path it records the size, modification time
+ * in nanoseconds and inode the file had when it was last hashed, along
+ * with the resulting id. As long as a file still has that size, time and
+ * inode, its id is taken from the index without reading it, so add and
+ * the checks made by checkout cost one stat per file instead of a full
+ * read.
+ *
+ * A file changed within the clock tick in which its entry was recorded
+ * may keep the same size and time. Entries whose time is not strictly
+ * older than the index file itself are therefore never trusted, and the
+ * file is hashed again; once the index is rewritten after that tick the
+ * entry becomes usable. The index is only a cache: a missing or
+ * unreadable index file is treated as empty. Its methods may be called
+ * from several threads at once, as status does.
+ *
+ * Status also records the untracked files it sees, without an id, so
+ * that the index lists every file of the working directory as of its
+ * last scan. The index then stores the token of the watcher that was
+ * running at the start of that scan; see Watcher for how later scans
+ * use it to look only at the paths that changed since.
+ * @author Wilson Chu
+ */
+class Index {
+
+    /** The magic number at the start of every index file. */
+    private static final int MAGIC = 0x44495243;
+
+    /** The version of the index file format. */
+    private static final int VERSION = 2;
+
+    /** The number of bytes in a binary SHA1. */
+    private static final int ID_BYTES = 20;
+
+    /** A typical number of bytes an entry takes in the index file. */
+    private static final int ENTRY_SIZE = 80;
+
+    /** The id written in place of that of a file we never hashed. */
+    private static final String UNKNOWN = "0".repeat(2 * ID_BYTES);
+
+    /** The attributes we read through the unix file attribute view. */
+    private static final String UNIX_ATTRIBUTES =
+            "unix:size,lastModifiedTime,ino";
+
+    /** False once we know that the unix attribute view is missing. */
+    private static volatile boolean unixView = true;
+
+    /** The file backing THIS index. */
+    private final File _file;
+
+    /** The blobs folder the files of THIS index are stored in. */
+    private final File _blobs;
+
+    /** The modification time of _file when it was last loaded or saved,
+     *  in nanoseconds, or Long.MIN_VALUE if it did not exist. */
+    private long _written;
+
+    /** The entries of THIS index, keyed by path. */
+    private final ConcurrentSkipListMap<String, Entry> _entries;
+
+    /** The token of the watcher when the index was last scanned, or "". */
+    private String _token;
+
+    /** True if _entries differ from the contents of _file. */
+    private volatile boolean _changed;
+
+    /**
+     * An index holding ENTRIES and TOKEN, backed by FILE last written
+     * at WRITTEN, whose files are stored in BLOBS.
+     * @param file The index file.
+     * @param blobs A blobs folder.
+     * @param written Its modification time in nanoseconds.
+     * @param token The token of its last scan, or "".
+     * @param entries Its entries.
+     */
+    private Index(File file, File blobs, long written, String token,
+                  ConcurrentSkipListMap<String, Entry> entries) {
+        _file = file;
+        _blobs = blobs;
+        _written = written;
+        _token = token;
+        _entries = entries;
+    }
+
+    /**
+     * Loads the index stored in FILE, whose files are stored in BLOBS.
+     * @param file The index file.
+     * @param blobs A blobs folder.
+     * @return The index, empty if FILE is missing or unreadable.
+     */
+    static Index load(File file, File blobs) {
+        ConcurrentSkipListMap<String, Entry> entries =
+                new ConcurrentSkipListMap<>();
+        long written;
+        String token = "";
+        try {
+            written = modified(file);
+            DataInputStream in = new DataInputStream(
+                    new ByteArrayInputStream(Utils.readContents(file)));
+            if (in.readInt() == MAGIC && in.readInt() == VERSION) {
+                token = in.readUTF();
+                for (int n = in.readInt(); n > 0; n -= 1) {
+                    String path = in.readUTF();
+                    long size = in.readLong();
+                    long time = in.readLong();
+                    long inode = in.readLong();
+                    byte[] id = new byte[ID_BYTES];
+                    in.readFully(id);
+                    String sha1 = ObjectStore.toHex(id);
+                    entries.put(path, new Entry(size, time, inode,
+                            sha1.equals(UNKNOWN) ? null : sha1));
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            entries.clear();
+            written = Long.MIN_VALUE;
+            token = "";
+        }
+        return new Index(file, blobs, written, token, entries);
+    }
+
+    /**
+     * Returns the token of the watcher at the start of the last scan.
+     * @return The token, or "" if no watcher was running.
+     */
+    String token() {
+        return _token;
+    }
+
+    /**
+     * Records that THIS index lists every file of the working directory
+     * as of TOKEN.
+     * @param token The token of the watcher, or null if none is running.
+     */
+    void setToken(String token) {
+        token = token == null ? "" : token;
+        if (!token.equals(_token)) {
+            _token = token;
+            _changed = true;
+        }
+    }
+
+    /**
+     * Returns the paths of the files THIS index knows about.
+     * @return A live view of the paths, in sorted order.
+     */
+    Set<String> paths() {
+        return _entries.keySet();
+    }
+
+    /**
+     * Returns the id of the blob holding the contents of FILE, whose path
+     * is PATH, reading FILE only if its entry is missing or stale.
+     * @param path The path of FILE relative to the CWD.
+     * @param file A file in the working directory.
+     * @return The SHA1 of its contents.
+     */
+    String hash(String path, File file) {
+        return hash(path, file, true);
+    }
+
+    /**
+     * Returns the id of the blob holding the contents of FILE, whose path
+     * is PATH. Unless CHECK is true, a watcher saw no change to FILE
+     * since its entry was made, so any id it holds is used without even
+     * a stat.
+     * @param path The path of FILE relative to the CWD.
+     * @param file A file in the working directory.
+     * @param check False if FILE is known to be unchanged.
+     * @return The SHA1 of its contents.
+     */
+    String hash(String path, File file, boolean check) {
+        if (!check) {
+            String sha1 = known(path);
+            if (sha1 != null) {
+                return sha1;
+            }
+        }
+        long[] stat = stat(file);
+        String sha1 = cached(path, stat);
+        if (sha1 == null) {
+            sha1 = Blobs.hash(file);
+            record(path, stat, sha1);
+        }
+        return sha1;
+    }
+
+    /**
+     * Stores the contents of FILE, whose path is PATH, as a blob unless
+     * its entry shows that the blob already exists.
+     * @param path The path of FILE relative to the CWD.
+     * @param file A file in the working directory.
+     * @return The SHA1 of its contents.
+     */
+    String store(String path, File file) {
+        return store(path, file, true);
+    }
+
+    /**
+     * Stores the contents of FILE, whose path is PATH, as a blob unless
+     * its entry shows that the blob already exists. Unless CHECK is true,
+     * a watcher saw no change to FILE since its entry was made, so the
+     * entry is used without a stat.
+     * @param path The path of FILE relative to the CWD.
+     * @param file A file in the working directory.
+     * @param check False if FILE is known to be unchanged.
+     * @return The SHA1 of its contents.
+     */
+    String store(String path, File file, boolean check) {
+        if (!check) {
+            String sha1 = known(path);
+            if (sha1 != null && ObjectStore.contains(_blobs, sha1)) {
+                return sha1;
+            }
+        }
+        long[] stat = stat(file);
+        String sha1 = cached(path, stat);
+        if (sha1 == null || !ObjectStore.contains(_blobs, sha1)) {
+            sha1 = Blobs.store(_blobs, file);
+            record(path, stat, sha1);
+        }
+        return sha1;
+    }
+
+    /**
+     * Records that FILE, whose path is PATH, was just written with the
+     * contents of the blob SHA1.
+     * @param path The path of FILE relative to the CWD.
+     * @param file A file in the working directory.
+     * @param sha1 The id of its contents.
+     */
+    void record(String path, File file, String sha1) {
+        record(path, stat(file), sha1);
+    }
+
+    /**
+     * Records that there is a file at PATH, without hashing it.
+     * @param path The path of a file relative to the CWD.
+     */
+    void see(String path) {
+        if (!_entries.containsKey(path)) {
+            _entries.put(path, new Entry(-1, -1, -1, null));
+            _changed = true;
+        }
+    }
+
+    /**
+     * Forgets the entries of every path not in PATHS.
+     * @param paths The paths of the files of the working directory.
+     */
+    void retain(Set<String> paths) {
+        if (_entries.keySet().retainAll(paths)) {
+            _changed = true;
+        }
+    }
+
+    /**
+     * Forgets the entry of PATH.
+     * @param path The path of a file relative to the CWD.
+     */
+    void remove(String path) {
+        if (_entries.remove(path) != null) {
+            _changed = true;
+        }
+    }
+
+    /**
+     * Writes THIS index back to its file if it changed since it was
+     * loaded.
+     */
+    void save() {
+        if (!_changed) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+                _entries.size() * ENTRY_SIZE);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(_token);
+            out.writeInt(_entries.size());
+            for (Map.Entry<String, Entry> entry : _entries.entrySet()) {
+                Entry value = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeLong(value._size);
+                out.writeLong(value._time);
+                out.writeLong(value._inode);
+                out.write(ObjectStore.toBytes(value._sha1 == null ? UNKNOWN
+                        : value._sha1));
+            }
+        } catch (IOException e) {
+            throw Utils.error("Could not write the index.");
+        }
+        Utils.replaceContents(_file, bytes.toByteArray());
+        _changed = false;
+        try {
+            _written = modified(_file);
+        } catch (IOException e) {
+            _written = Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Returns whether THIS index still matches its file, that is whether
+     * no other process wrote the file since we last loaded or saved it.
+     * @return True if THIS index can be used instead of loading it again.
+     */
+    boolean isCurrent() {
+        try {
+            return !_changed && modified(_file) == _written;
+        } catch (IOException e) {
+            return _written == Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Returns the modification time of FILE.
+     * @param file A file.
+     * @return Its modification time in nanoseconds.
+     * @throws IOException If FILE cannot be read.
+     */
+    private static long modified(File file) throws IOException {
+        return Files.getLastModifiedTime(file.toPath())
+                .to(TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the id recorded for PATH, whatever the stat data of its
+     * file.
+     * @param path The path of a file relative to the CWD.
+     * @return The id, or null if there is none.
+     */
+    private String known(String path) {
+        Entry entry = _entries.get(path);
+        return entry == null ? null : entry._sha1;
+    }
+
+    /**
+     * Returns the id recorded for PATH if it can be trusted for a file
+     * whose stat data is STAT.
+     * @param path The path of a file relative to the CWD.
+     * @param stat The size, time and inode of the file.
+     * @return The id of its contents, or null if it has to be hashed.
+     */
+    private String cached(String path, long[] stat) {
+        Entry entry = _entries.get(path);
+        if (entry == null || entry._size != stat[0]
+                || entry._time != stat[1] || entry._inode != stat[2]
+                || entry._time >= _written) {
+            return null;
+        }
+        return entry._sha1;
+    }
+
+    /**
+     * Records that the file at PATH had the stat data STAT and the
+     * contents of the blob SHA1.
+     * @param path The path of a file relative to the CWD.
+     * @param stat The size, time and inode of the file.
+     * @param sha1 The id of its contents.
+     */
+    private void record(String path, long[] stat, String sha1) {
+        _entries.put(path, new Entry(stat[0], stat[1], stat[2], sha1));
+        _changed = true;
+    }
+
+    /**
+     * Returns the size, modification time in nanoseconds and inode of
+     * FILE. The inode is 0 where the file system does not report one.
+     * @param file A file.
+     * @return The three numbers.
+     */
+    private static long[] stat(File file) {
+        Path path = file.toPath();
+        try {
+            if (unixView) {
+                try {
+                    Map<String, Object> attributes =
+                            Files.readAttributes(path, UNIX_ATTRIBUTES);
+                    return new long[] {(Long) attributes.get("size"),
+                        ((FileTime) attributes.get("lastModifiedTime"))
+                                .to(TimeUnit.NANOSECONDS),
+                        ((Number) attributes.get("ino")).longValue()};
+                } catch (UnsupportedOperationException
+                        | IllegalArgumentException e) {
+                    unixView = false;
+                }
+            }
+            BasicFileAttributes attributes = Files.readAttributes(path,
+                    BasicFileAttributes.class);
+            return new long[] {attributes.size(),
+                attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS), 0};
+        } catch (NoSuchFileException e) {
+            throw Utils.error("File does not exist.");
+        } catch (IOException e) {
+            throw Utils.error("Could not read %s.", file.getName());
+        }
+    }
+
+    /** What we know about one file of the working directory. */
+    private static class Entry {
+
+        /** The size of the file in bytes. */
+        private final long _size;
+
+        /** The modification time of the file in nanoseconds. */
+        private final long _time;
+
+        /** The inode of the file, or 0. */
+        private final long _inode;
+
+        /** The id of the contents of the file, or null if unknown. */
+        private final String _sha1;
+
+        /**
+         * An entry for a file with SIZE, TIME, INODE and contents SHA1.
+         * @param size The size of the file in bytes.
+         * @param time The modification time in nanoseconds.
+         * @param inode The inode, or 0.
+         * @param sha1 The id of the contents.
+         */
+        Entry(long size, long time, long inode, String sha1) {
+            _size = size;
+            _time = time;
+            _inode = inode;
+            _sha1 = sha1;
+        }
+    }
+}
@@ -1,78 +1,101 @@
 package gitlet;
 
-/** Driver class for Gitlet, the tiny stupid version-control system.
+import java.io.File;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Supplier;
+
+/** Driver class for Gitlet, the tiny stupid version-control system. It
+ *  parses the command line, runs the command through Repository, and
+ *  prints the result.
  *  @author Wilson Chu
  */
 public class Main {
 
+    /** The current working directory. */
+    private static final File CWD = new File(System.getProperty("user.dir"));
+
     /** Usage: java gitlet.Main ARGS, where ARGS contains
-     *  <COMMAND> <OPERAND> .... */
+     *  <COMMAND> <OPERAND> .... Errors are printed as their message. */
     public static void main(String... args) {
+        try {
+            run(() -> Repository.open(CWD), args);
+        } catch (GitletException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Runs the command ARGS against the repository REPOSITORY supplies,
+     * which is only asked for once the operands have been checked as far
+     * as they can be without it.
+     * @param repository Opens the repository the command runs against.
+     * @param args The user input.
+     */
+    static void run(Supplier<Repository> repository, String... args) {
         if (args.length == 0) {
-            System.out.println("Please enter a command.");
-            System.exit(0);
+            throw Utils.error("Please enter a command.");
         }
-        switchUpToGlobal(args);
+        switchUpToGlobal(repository, args);
     }
 
     /**
      * Throws the error "Incorrect operands.".
      */
     public static void incorrectOperandsError() {
-        System.out.println("Incorrect operands.");
-        System.exit(0);
+        throw Utils.error("Incorrect operands.");
     }
 
     /**
      * Passing off some of the switch/case statements to
      * this helper function.
+     * @param repository Opens the repository the command runs against.
      * @param args The user input.
      */
-    private static void switchUpToGlobal(String... args) {
+    private static void switchUpToGlobal(Supplier<Repository> repository,
+                                         String... args) {
         switch (args[0]) {
         case "init":
             if (args.length != 1) {
                 incorrectOperandsError();
             }
-            Repo.initialize();
+            Repository.init(CWD);
             break;
         case "add":
             if (args.length != 2) {
                 incorrectOperandsError();
             }
-            Repo.initializedCheck();
-            Repo.add(args[1]);
+            repository.get().add(args[1]);
             break;
         case "commit":
             if (args.length < 2) {
-                System.out.println("Please enter a commit message.");
-                System.exit(0);
+                throw Utils.error("Please enter a commit message.");
             } else if (args.length > 2) {
                 incorrectOperandsError();
             }
-            Repo.initializedCheck();
-            Repo.commit(args[1]);
+            repository.get().commit(args[1]);
             break;
-        case "rm":
-            Repo.initializedCheck();
+        case "rm": {
+            Repository repo = repository.get();
             if (args.length != 2) {
                 incorrectOperandsError();
             }
-            Repo.rm(args[1]);
+            repo.rm(args[1]);
             break;
+        }
         case "log":
-            Repo.initializedCheck();
-            Repo.log();
+            log(repository.get());
             break;
         case "global-log":
             if (args.length != 1) {
                 incorrectOperandsError();
             }
-            Repo.initializedCheck();
-            Repo.globalLog();
+            repository.get().globalLog(System.out);
             break;
         default: {
-            switchFromFindOnwards(args);
+            switchFromFindOnwards(repository, args);
         }
         }
     }
@@ -80,80 +103,204 @@ public class Main {
     /**
      * Passing off the remaining switch/case statements to this
      * helper function.
+     * @param repository Opens the repository the command runs against.
      * @param args The user input.
      */
-    public static void switchFromFindOnwards(String... args) {
+    private static void switchFromFindOnwards(
+            Supplier<Repository> repository, String... args) {
         switch (args[0]) {
         case "find":
-            Repo.initializedCheck();
-            if (args.length != 2) {
-                incorrectOperandsError();
-            }
-            Repo.find(args[1]);
+        case "status":
+        case "checkout":
+        case "branch":
+        case "rm-branch":
+        case "repack":
+        case "message-index":
+        case "watch":
+        case "batch":
+        case "serve":
+        case "reset":
+        case "merge":
+            switchRepositoryCommands(repository.get(), args);
+            break;
+        default: {
+            throw Utils.error("No command with that name exists.");
+        }
+        }
+    }
+
+    /**
+     * Passing off the commands that check their operands only once
+     * REPO has been opened.
+     * @param repo The repository the command runs against.
+     * @param args The user input.
+     */
+    private static void switchRepositoryCommands(Repository repo,
+                                                 String... args) {
+        switch (args[0]) {
+        case "find":
+            find(repo, args);
             break;
         case "status":
-            Repo.initializedCheck();
             if (args.length != 1) {
                 incorrectOperandsError();
             }
-            System.out.println(Repo.getStagingArea());
+            System.out.println(repo.status().format(
+                    repo.getActiveBranch().getName()));
             break;
         case "checkout":
-            Repo.initializedCheck();
-            checkout(args);
+            checkout(repo, args);
             break;
         case "branch":
-            Repo.initializedCheck();
-            Repo.branch(args[1]);
+            repo.branch(args[1]);
             break;
         case "rm-branch":
-            Repo.initializedCheck();
             if (args.length != 2) {
                 incorrectOperandsError();
             }
-            Repo.rmBranch(args[1]);
+            repo.rmBranch(args[1]);
+            break;
+        case "repack":
+            if (args.length != 1) {
+                incorrectOperandsError();
+            }
+            repo.repack();
+            break;
+        case "message-index":
+            messageIndex(repo, args);
+            break;
+        case "watch":
+            if (args.length != 1) {
+                incorrectOperandsError();
+            }
+            repo.watch();
+            break;
+        case "batch":
+            if (args.length > 2) {
+                incorrectOperandsError();
+            }
+            Batch.run(repo, args.length == 2 ? args[1] : null);
+            break;
+        case "serve":
+            if (args.length != 1) {
+                incorrectOperandsError();
+            }
+            Server.run(repo);
             break;
         case "reset":
-            Repo.initializedCheck();
             if (args.length != 2) {
                 incorrectOperandsError();
             }
-            Repo.reset(args[1]);
+            repo.reset(args[1]);
             break;
-        case "merge":
-            Repo.initializedCheck();
+        default:
             if (args.length != 2) {
                 incorrectOperandsError();
             }
-            Repo.merge(Repo.getActiveBranch().getName(), args[1]);
+            merge(repo, args[1]);
+        }
+    }
+
+    /**
+     * Prints the log of the current branch of REPO, newest first.
+     * @param repo The repository.
+     */
+    private static void log(Repository repo) {
+        for (Iterator<String> ids = repo.log(); ids.hasNext();) {
+            String sha1 = ids.next();
+            System.out.print(repo.readCommit(sha1).logEntry(sha1));
+        }
+        System.out.flush();
+    }
+
+    /**
+     * Merges BRANCH into the current branch of REPO and reports how it
+     * went.
+     * @param repo The repository.
+     * @param branch The name of the incoming branch.
+     */
+    private static void merge(Repository repo, String branch) {
+        switch (repo.merge(branch)) {
+        case FAST_FORWARD:
+            System.out.println("Current branch fast-forwarded.");
             break;
-        default: {
-            System.out.println("No command with that name exists.");
-            System.exit(0);
+        case CONFLICT:
+            System.out.println("Encountered a merge conflict.");
+            break;
+        default:
+            break;
+        }
+    }
+
+    /**
+     * Prints the commits of REPO with the message in ARGS or, when ARGS
+     * holds options instead, those found by the search they describe. A
+     * single operand is a message unless it is the name of an option.
+     * @param repo The repository the command runs against.
+     * @param args The user input.
+     */
+    private static void find(Repository repo, String... args) {
+        if (args.length == 2 && !Search.isOption(args[1])) {
+            for (String sha1 : repo.find(args[1])) {
+                System.out.println(sha1);
+            }
+            return;
         }
+        PrintStream out = System.out;
+        repo.search(Search.parse(Arrays.copyOfRange(args, 1,
+                args.length)), out::println);
+        out.flush();
+    }
+
+    /**
+     * Rebuilds or checks the message index of REPO, as the operand in
+     * ARGS asks.
+     * @param repo The repository the command runs against.
+     * @param args The user input.
+     */
+    private static void messageIndex(Repository repo, String... args) {
+        if (args.length != 2) {
+            incorrectOperandsError();
+        }
+        switch (args[1]) {
+        case "rebuild":
+            repo.rebuildMessageIndex();
+            break;
+        case "check":
+            List<String> problems = repo.checkMessageIndex();
+            for (String problem : problems) {
+                System.out.println(problem);
+            }
+            if (problems.isEmpty()) {
+                System.out.println("The message index is consistent.");
+            }
+            break;
+        default:
+            incorrectOperandsError();
         }
     }
 
     /**
      * Passing off the checkout case from our switch cases.
+     * @param repo The repository the command runs against.
      * @param args The user input.
      */
-    private static void checkout(String... args) {
+    private static void checkout(Repository repo, String... args) {
         if (args.length == 3) {
             if (!args[1].equals("--") || args[2].equals("--")) {
                 incorrectOperandsError();
             } else {
-                Repo.checkoutRevert(args[2]);
+                repo.checkoutRevert(args[2]);
             }
         } else if (args.length == 4) {
             if (!args[2].equals("--") || args[1].equals("--")
                     || args[3].equals("--")) {
                 incorrectOperandsError();
             } else {
-                Repo.checkoutFromCommit(args[1], args[3]);
+                repo.checkoutFromCommit(args[1], args[3]);
             }
         } else if (args.length == 2) {
-            Repo.checkoutBranch(args[1]);
+            repo.checkoutBranch(args[1]);
         }
     }
 
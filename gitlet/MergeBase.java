@@ -0,0 +1,237 @@
+package gitlet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Computes the best common ancestors of two commits in a CommitGraph.
+ * Both heads are walked together, always expanding the commit with the
+ * highest generation number (newest timestamp on ties), so the walk
+ * stops as soon as every commit left on the frontier is already known
+ * to be an ancestor of a common ancestor we have found. A best common
+ * ancestor is one that is not an ancestor of any other common ancestor;
+ * criss-cross histories can have more than one.
+ * @author Wilson Chu
+ */
+class MergeBase {
+
+    /** Marks commits reachable from the first head. */
+    private static final int PARENT1 = 1;
+
+    /** Marks commits reachable from the second head. */
+    private static final int PARENT2 = 2;
+
+    /** Marks commits that are ancestors of a common ancestor. */
+    private static final int STALE = 4;
+
+    /** Marks commits that have been added to the result. */
+    private static final int RESULT = 8;
+
+    /** The graph we are walking. */
+    private final CommitGraph _graph;
+
+    /** The flags of every commit we have reached so far. */
+    private final HashMap<Integer, Integer> _flags = new HashMap<>();
+
+    /** The commits still to be expanded, highest generation first. A
+     *  commit may be queued more than once. */
+    private final PriorityQueue<Integer> _queue;
+
+    /** The number of times each commit currently appears in _queue. */
+    private final HashMap<Integer, Integer> _queued = new HashMap<>();
+
+    /** The number of entries in _queue whose commit is not stale. The walk
+     *  is over once this reaches zero. */
+    private int _active;
+
+    /**
+     * A new merge-base computation over GRAPH.
+     * @param graph The commit graph we are walking.
+     */
+    private MergeBase(CommitGraph graph) {
+        _graph = graph;
+        _queue = new PriorityQueue<>(this::compare);
+    }
+
+    /**
+     * Returns every best common ancestor of the commits at indices
+     * COMMIT1 and COMMIT2 of GRAPH, best first as defined by best.
+     * @param graph The commit graph.
+     * @param commit1 The index of the first head.
+     * @param commit2 The index of the second head.
+     * @return The indices of the best common ancestors. Empty if the two
+     *         commits share no history.
+     */
+    static List<Integer> find(CommitGraph graph, int commit1, int commit2) {
+        MergeBase mergeBase = new MergeBase(graph);
+        List<Integer> result = mergeBase.paintDownToCommon(commit1, commit2);
+        if (result.size() > 1) {
+            result = mergeBase.removeRedundant(result);
+        }
+        result.sort(mergeBase::compareBest);
+        return result;
+    }
+
+    /**
+     * Returns the single best common ancestor of the commits at indices
+     * COMMIT1 and COMMIT2 of GRAPH. When a criss-cross history leaves
+     * several equally good candidates, we deliberately pick the one with
+     * the highest generation number, then the newest timestamp, then the
+     * smallest SHA1, so the choice never depends on traversal order.
+     * @param graph The commit graph.
+     * @param commit1 The index of the first head.
+     * @param commit2 The index of the second head.
+     * @return The index of the best common ancestor, or CommitGraph.NONE.
+     */
+    static int best(CommitGraph graph, int commit1, int commit2) {
+        List<Integer> result = find(graph, commit1, commit2);
+        if (result.isEmpty()) {
+            return CommitGraph.NONE;
+        }
+        return result.get(0);
+    }
+
+    /**
+     * Walks down from COMMIT1 and COMMIT2 until every commit on the
+     * frontier is stale, collecting the common ancestors found on the way.
+     * @param commit1 The index of the first head.
+     * @param commit2 The index of the second head.
+     * @return The common ancestors found, possibly including some that
+     *         are ancestors of others.
+     */
+    private List<Integer> paintDownToCommon(int commit1, int commit2) {
+        ArrayList<Integer> result = new ArrayList<>();
+        if (commit1 == commit2) {
+            result.add(commit1);
+            return result;
+        }
+        push(commit1, PARENT1);
+        push(commit2, PARENT2);
+        while (_active > 0) {
+            int commit = _queue.remove();
+            _queued.merge(commit, -1, Integer::sum);
+            int flags = _flags.get(commit) & (PARENT1 | PARENT2 | STALE);
+            if ((flags & STALE) == 0) {
+                _active -= 1;
+            }
+            if (flags == (PARENT1 | PARENT2)) {
+                if ((_flags.get(commit) & RESULT) == 0) {
+                    _flags.put(commit, _flags.get(commit) | RESULT);
+                    result.add(commit);
+                }
+                flags |= STALE;
+            }
+            for (int parent : _graph.parents(commit)) {
+                push(parent, flags);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds FLAGS to the commit at index COMMIT and queues it, unless it
+     * already carries all of them.
+     * @param commit The index of the commit.
+     * @param flags The flags being propagated to COMMIT.
+     */
+    private void push(int commit, int flags) {
+        int oldFlags = _flags.getOrDefault(commit, 0);
+        if ((oldFlags & flags) == flags) {
+            return;
+        }
+        int queued = _queued.getOrDefault(commit, 0);
+        if ((oldFlags & STALE) == 0 && (flags & STALE) != 0) {
+            _active -= queued;
+        }
+        _flags.put(commit, oldFlags | flags);
+        _queued.put(commit, queued + 1);
+        _queue.add(commit);
+        if (((oldFlags | flags) & STALE) == 0) {
+            _active += 1;
+        }
+    }
+
+    /**
+     * Removes from CANDIDATES every commit that is an ancestor of another
+     * candidate.
+     * @param candidates Common ancestors of the two heads.
+     * @return The candidates that are not ancestors of any other.
+     */
+    private List<Integer> removeRedundant(List<Integer> candidates) {
+        ArrayList<Integer> result = new ArrayList<>();
+        for (int candidate : candidates) {
+            boolean redundant = false;
+            for (int other : candidates) {
+                if (other != candidate
+                        && isAncestor(candidate, other)) {
+                    redundant = true;
+                    break;
+                }
+            }
+            if (!redundant) {
+                result.add(candidate);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether the commit at ANCESTOR is reachable from the commit
+     * at DESCENDANT, pruning any commit whose generation is too low.
+     * @param ancestor The possible ancestor.
+     * @param descendant The possible descendant.
+     * @return True if ANCESTOR is an ancestor of DESCENDANT.
+     */
+    private boolean isAncestor(int ancestor, int descendant) {
+        int minGeneration = _graph.generation(ancestor);
+        HashSet<Integer> seen = new HashSet<>();
+        ArrayList<Integer> stack = new ArrayList<>();
+        stack.add(descendant);
+        while (!stack.isEmpty()) {
+            int commit = stack.remove(stack.size() - 1);
+            if (commit == ancestor) {
+                return true;
+            }
+            for (int parent : _graph.parents(commit)) {
+                if (_graph.generation(parent) >= minGeneration
+                        && seen.add(parent)) {
+                    stack.add(parent);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Orders the walk: higher generation first, then newer timestamp.
+     * @param commit1 The index of a commit.
+     * @param commit2 The index of a commit.
+     * @return A negative number if COMMIT1 should be expanded first.
+     */
+    private int compare(int commit1, int commit2) {
+        int byGeneration = Integer.compare(_graph.generation(commit2),
+                _graph.generation(commit1));
+        if (byGeneration != 0) {
+            return byGeneration;
+        }
+        return Long.compare(_graph.timestamp(commit2),
+                _graph.timestamp(commit1));
+    }
+
+    /**
+     * Orders the best common ancestors as described by best.
+     * @param commit1 The index of a commit.
+     * @param commit2 The index of a commit.
+     * @return A negative number if COMMIT1 is the better merge base.
+     */
+    private int compareBest(int commit1, int commit2) {
+        int result = compare(commit1, commit2);
+        if (result != 0) {
+            return result;
+        }
+        return _graph.sha1(commit1).compareTo(_graph.sha1(commit2));
+    }
+}
@@ -0,0 +1,277 @@
+package gitlet;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An index from commit messages to the commits that carry them, so that
+ * find never has to read a commit. The message-index file holds one
+ * fixed-size record per commit: the SHA1 of the UTF-8 bytes of its
+ * message followed by its own SHA1. Records are appended as commits are
+ * made, and the file is rebuilt from the commits themselves when it is
+ * missing or when asked to. Once mapped, the records are hashed by
+ * message into an open-addressing table, as the commit graph does with
+ * commit ids.
+ * @author Wilson Chu
+ */
+class MessageIndex {
+
+    /** The magic number at the start of every message-index file. */
+    private static final int MAGIC = 0x4d534758;
+
+    /** The version of the message-index file format. */
+    private static final int VERSION = 1;
+
+    /** The size of the header of the message-index file. */
+    private static final int HEADER = 8;
+
+    /** The number of bytes in a binary SHA1. */
+    private static final int ID_BYTES = 20;
+
+    /** The size of a single record. */
+    private static final int RECORD = 2 * ID_BYTES;
+
+    /** The file backing THIS index. */
+    private final File _file;
+
+    /** The identity of _file when it was last mapped, or null if the
+     *  file system does not have one. */
+    private Object _fileKey;
+
+    /** The mapped contents of _file. */
+    private MappedByteBuffer _buffer;
+
+    /** The number of records in THIS index. */
+    private int _size;
+
+    /** An open-addressing hash table from message hash to record index
+     *  plus one, zero marking an empty slot. Records with the same
+     *  message follow each other along the probe sequence. */
+    private int[] _table;
+
+    /**
+     * Opens the message index stored in FILE.
+     * @param file The message-index file.
+     */
+    private MessageIndex(File file) {
+        _file = file;
+        map();
+    }
+
+    /**
+     * Loads the message index stored in FILE. If FILE does not exist yet,
+     * it is rebuilt from the commits stored in COMMITSDIR.
+     * @param file The message-index file.
+     * @param commitsDir The directory holding our encoded commits.
+     * @return The loaded message index.
+     */
+    static MessageIndex load(File file, File commitsDir) {
+        if (!file.exists()) {
+            return rebuild(file, commitsDir);
+        }
+        return new MessageIndex(file);
+    }
+
+    /**
+     * Replaces FILE by a fresh message index of every commit in
+     * COMMITSDIR.
+     * @param file The message-index file.
+     * @param commitsDir The directory holding our encoded commits.
+     * @return The new message index.
+     */
+    static MessageIndex rebuild(File file, File commitsDir) {
+        List<String> commits = ObjectStore.list(commitsDir);
+        ByteBuffer data = ByteBuffer.allocate(HEADER
+                + commits.size() * RECORD);
+        data.putInt(MAGIC).putInt(VERSION);
+        for (String sha1 : commits) {
+            data.put(hash(ObjectStore.readCommit(commitsDir, sha1)
+                    .getCommitMessage())).put(ObjectStore.toBytes(sha1));
+        }
+        Utils.replaceContents(file, data.array());
+        return new MessageIndex(file);
+    }
+
+    /**
+     * Appends the commit SHA1, whose message is MESSAGE, to THIS index,
+     * unless it is already there.
+     * @param sha1 The SHA1 of the new commit.
+     * @param message Its message.
+     */
+    void add(String sha1, String message) {
+        if (find(message).contains(sha1)) {
+            return;
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD);
+        record.put(hash(message)).put(ObjectStore.toBytes(sha1));
+        try (FileOutputStream out = new FileOutputStream(_file, true)) {
+            out.write(record.array());
+        } catch (IOException e) {
+            throw Utils.error("Could not append to the message index.");
+        }
+        map();
+    }
+
+    /**
+     * Returns the SHA1s of the commits whose message is MESSAGE.
+     * @param message A commit message.
+     * @return Their SHA1s, in sorted order.
+     */
+    List<String> find(String message) {
+        byte[] hash = hash(message);
+        ArrayList<String> result = new ArrayList<>();
+        int slot = ByteBuffer.wrap(hash).getInt() & (_table.length - 1);
+        while (_table[slot] != 0) {
+            int index = _table[slot] - 1;
+            if (Arrays.equals(bytes(index, 0), hash)) {
+                result.add(ObjectStore.toHex(bytes(index, ID_BYTES)));
+            }
+            slot = (slot + 1) & (_table.length - 1);
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Compares THIS index with the commits stored in COMMITSDIR.
+     * @param commitsDir The directory holding our encoded commits.
+     * @return A description of each commit that is missing from THIS
+     *         index, missing from COMMITSDIR or indexed under another
+     *         message, in sorted order; empty if they agree.
+     */
+    List<String> check(File commitsDir) {
+        HashMap<String, byte[]> indexed = new HashMap<>();
+        for (int i = 0; i < _size; i += 1) {
+            indexed.put(ObjectStore.toHex(bytes(i, ID_BYTES)), bytes(i, 0));
+        }
+        ArrayList<String> result = new ArrayList<>();
+        for (String sha1 : ObjectStore.list(commitsDir)) {
+            byte[] hash = indexed.remove(sha1);
+            if (hash == null) {
+                result.add(String.format("Commit %s is missing from the "
+                        + "message index.", sha1));
+            } else if (!Arrays.equals(hash, hash(ObjectStore.readCommit(
+                    commitsDir, sha1).getCommitMessage()))) {
+                result.add(String.format("Commit %s is indexed under the "
+                        + "wrong message.", sha1));
+            }
+        }
+        for (Map.Entry<String, byte[]> entry : indexed.entrySet()) {
+            result.add(String.format("Commit %s is indexed but does not "
+                    + "exist.", entry.getKey()));
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Picks up the records other processes appended to _file since it
+     * was last mapped.
+     * @return False if _file was replaced or truncated instead, in which
+     *         case THIS index must be loaded again.
+     */
+    boolean refresh() {
+        long length = _file.length();
+        if (length < _buffer.capacity()
+                || !Objects.equals(_fileKey, fileKey())) {
+            return false;
+        }
+        if (length > _buffer.capacity()) {
+            map();
+        }
+        return true;
+    }
+
+    /**
+     * Maps _file into memory and adds any records appended since the
+     * last mapping to the lookup table, growing it when it gets too full.
+     */
+    private void map() {
+        _fileKey = fileKey();
+        try (RandomAccessFile raf = new RandomAccessFile(_file, "r")) {
+            _buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0,
+                    raf.length());
+        } catch (IOException e) {
+            throw Utils.error("Could not read the message index.");
+        }
+        if (_buffer.capacity() < HEADER || _buffer.getInt(0) != MAGIC
+                || _buffer.getInt(4) != VERSION) {
+            throw Utils.error("Corrupted message index.");
+        }
+        int oldSize = _size;
+        _size = (_buffer.capacity() - HEADER) / RECORD;
+        if (_table == null || 2 * _size > _table.length) {
+            _table = new int[Integer.highestOneBit(
+                    Math.max(_size, 1) * 2) * 2];
+            oldSize = 0;
+        }
+        for (int i = oldSize; i < _size; i += 1) {
+            int slot = _buffer.getInt(offset(i)) & (_table.length - 1);
+            while (_table[slot] != 0) {
+                slot = (slot + 1) & (_table.length - 1);
+            }
+            _table[slot] = i + 1;
+        }
+    }
+
+    /**
+     * Returns the identity of _file on disk, which changes when the file
+     * is replaced rather than appended to.
+     * @return The file key, or null if there is none.
+     */
+    private Object fileKey() {
+        try {
+            return Files.readAttributes(_file.toPath(),
+                    BasicFileAttributes.class).fileKey();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns one of the two SHA1s of the record at INDEX.
+     * @param index The index of a record.
+     * @param start 0 for the hash of the message, ID_BYTES for the SHA1
+     *              of the commit.
+     * @return The binary SHA1.
+     */
+    private byte[] bytes(int index, int start) {
+        byte[] result = new byte[ID_BYTES];
+        _buffer.get(offset(index) + start, result);
+        return result;
+    }
+
+    /**
+     * Returns the byte offset of the record at INDEX.
+     * @param index The index of a record.
+     * @return The offset of the record inside _buffer.
+     */
+    private static int offset(int index) {
+        return HEADER + index * RECORD;
+    }
+
+    /**
+     * Returns the binary SHA1 of the UTF-8 bytes of MESSAGE.
+     * @param message A commit message.
+     * @return Its hash.
+     */
+    private static byte[] hash(String message) {
+        return ObjectStore.sha1Digest().digest(
+                message.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,371 @@
+package gitlet;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Upgrades the .gitlet folder of repositories made by older versions of
+ * gitlet. The format version of a repository is stored in the
+ * .gitlet/version file; repositories without one have version 0. The
+ * steps below are grouped by the version that introduced them, and the
+ * version is recorded as soon as each group is done.
+ * @author Wilson Chu
+ */
+class Migration {
+
+    /** The format version written by this version of gitlet. */
+    static final int VERSION = 8;
+
+    /** The prefix under which earlier upgrades moved objects aside. */
+    private static final String OLD = "old";
+
+    /**
+     * Returns the format version of REPOSITORY.
+     * @param repository A repository.
+     * @return The version stored in its version file, or 0 if there is
+     *         none.
+     */
+    static int version(Repository repository) {
+        if (!repository.versionFile().exists()) {
+            return 0;
+        }
+        return Integer.parseInt(Utils.readContentsAsString(
+                repository.versionFile()).trim());
+    }
+
+    /**
+     * Records that REPOSITORY has the current format.
+     * @param repository A repository.
+     */
+    static void writeVersion(Repository repository) {
+        writeVersion(repository, VERSION);
+    }
+
+    /**
+     * Records that REPOSITORY has format VERSION.
+     * @param repository A repository.
+     * @param version The format version.
+     */
+    private static void writeVersion(Repository repository, int version) {
+        Utils.replaceContents(repository.versionFile(), version + "\n");
+    }
+
+    /**
+     * Brings REPOSITORY up to the current format version, one step at a
+     * time.
+     * @param repository A repository.
+     */
+    static void upgrade(Repository repository) {
+        int version = version(repository);
+        if (version > VERSION) {
+            throw Utils.error("This repository was made by a newer "
+                    + "version of gitlet.");
+        }
+        if (version >= 3 && version < 7) {
+            /* The steps of versions 5 and 6 read objects through
+             * ObjectStore, which only finds loose objects where version 7
+             * keeps them, so those are moved first. Older repositories
+             * are moved as version 3 compresses their objects. */
+            fanOut(repository);
+        }
+        if (version < 1) {
+            contentAddressedBlobs(repository);
+            appendOnlyLogs(repository);
+            writeVersion(repository, 1);
+        }
+        if (version < 2) {
+            rawBlobs(repository);
+            writeVersion(repository, 2);
+        }
+        if (version < 3) {
+            compressObjects(repository.blobs(), ObjectStore.BLOB);
+            compressObjects(repository.commits(), ObjectStore.COMMIT);
+            writeVersion(repository, 3);
+        }
+        if (version < 4) {
+            /* Version 4 may keep objects in packs. Older repositories have
+             * none, so there is nothing to convert; the version number only
+             * stops older versions of gitlet from misreading us. */
+            writeVersion(repository, 4);
+        }
+        if (version < 5) {
+            trees(repository);
+            writeVersion(repository, 5);
+        }
+        if (version < 6) {
+            encoding(repository);
+            writeVersion(repository, 6);
+        }
+        if (version < 7) {
+            writeVersion(repository, 7);
+        }
+        if (version < 8) {
+            /* Version 8 keeps an index of commit messages, which is built
+             * the first time it is needed, so there is nothing to convert;
+             * the version number only stops older versions of gitlet,
+             * which would not add their commits to it, from committing to
+             * us. */
+            writeVersion(repository, 8);
+        }
+    }
+
+    /**
+     * Version 1 names blobs by the SHA1 of their contents alone. Older
+     * blobs were named by that SHA1 followed by the SHA1 of their file
+     * name, so we rename each blob to its first UID_LENGTH characters
+     * (merging identical contents stored under several names) and
+     * rewrite the references held by every commit and by the stage.
+     * Commit files keep their names, so branches and logs still point
+     * at the same commits.
+     * @param repository The repository we are upgrading.
+     */
+    private static void contentAddressedBlobs(Repository repository) {
+        File blobs = repository.blobs();
+        for (String blob : objectNames(blobs)) {
+            if (blob.length() > Utils.UID_LENGTH) {
+                File oldBlob = Utils.join(blobs, blob);
+                File newBlob = Utils.join(blobs, shorten(blob));
+                if (newBlob.exists()) {
+                    oldBlob.delete();
+                } else if (!oldBlob.renameTo(newBlob)) {
+                    throw Utils.error("Could not upgrade object %s.", blob);
+                }
+            }
+        }
+        for (String commitSHA1
+                : Utils.plainFilenamesIn(repository.commits())) {
+            File commitFile = Utils.join(repository.commits(), commitSHA1);
+            Commit commit = Utils.readObject(commitFile, Commit.class);
+            if (shortenAll(commit.getBlobs())) {
+                Utils.replaceObject(commitFile, commit);
+            }
+        }
+        Stage stage = Utils.readObject(repository.stageFile(), Stage.class);
+        boolean staged = shortenAll(stage.getStagedFilesHashMap());
+        if (shortenAll(stage.getRemovedFilesHashMap()) || staged) {
+            Utils.replaceObject(repository.stageFile(), stage);
+        }
+    }
+
+    /**
+     * Returns the names of the plain files in DIR, a directory of
+     * objects, which git does not keep in a checked-in repository that
+     * has none.
+     * @param dir A directory of objects.
+     * @return The names of its files, sorted, or none if DIR is missing.
+     */
+    private static List<String> objectNames(File dir) {
+        if (!dir.isDirectory()) {
+            return Collections.emptyList();
+        }
+        return Utils.plainFilenamesIn(dir);
+    }
+
+    /**
+     * Version 1 also stores the global log as append-only records and
+     * renders branch logs from the commit graph. Older repositories kept
+     * every log as newest-first text, so we split the global log into its
+     * entries, append them oldest first, and delete the branch logs.
+     * @param repository The repository we are upgrading.
+     */
+    private static void appendOnlyLogs(Repository repository) {
+        for (String fileName
+                : Utils.plainFilenamesIn(repository.branches())) {
+            if (fileName.endsWith("Log.txt")) {
+                Utils.join(repository.branches(), fileName).delete();
+            }
+        }
+        File globalLog = repository.globalLogFile();
+        if (AppendLog.isWellFormed(globalLog)) {
+            return;
+        }
+        String[] entries = Pattern.compile("(?m)(?=^"
+                + Repository.SEPERATOR + "$)").split(
+                Utils.readContentsAsString(globalLog));
+        Utils.replaceContents(globalLog);
+        for (int i = entries.length - 1; i >= 0; i -= 1) {
+            if (!entries[i].isEmpty()) {
+                AppendLog.append(globalLog, entries[i]);
+            }
+        }
+    }
+
+    /**
+     * Version 2 stores the raw bytes of each file in its blob. Older
+     * blobs held the file as a serialized String. Blob names do not
+     * change, since the SHA1 of those Strings is the SHA1 of their UTF-8
+     * bytes.
+     * @param repository The repository we are upgrading.
+     */
+    private static void rawBlobs(Repository repository) {
+        for (String blob : objectNames(repository.blobs())) {
+            File blobFile = Utils.join(repository.blobs(), blob);
+            byte[] contents = Utils.readContents(blobFile);
+            if (contents.length > 4 && (contents[0] & 0xff) == 0xac
+                    && (contents[1] & 0xff) == 0xed) {
+                String text = Utils.readObject(blobFile, String.class);
+                if (Utils.sha1(text).equals(blob)) {
+                    Utils.replaceContents(blobFile, text);
+                }
+            }
+        }
+    }
+
+    /**
+     * Version 3 stores every object in the compressed format described in
+     * ObjectStore. Each uncompressed object in DIR is compressed through
+     * a temporary file that is renamed to its place in ObjectStore, and
+     * only then deleted, so an upgrade that is cut short loses nothing
+     * and simply runs again. An earlier version of this upgrade moved
+     * each object aside as OLD followed by its name before rewriting it;
+     * such leftovers are the original objects, so they are put back
+     * first, over whatever was written in their place. Blobs are
+     * streamed; commits are small, and since version 1 may have rewritten
+     * them they are not always named by the SHA1 of their contents.
+     * @param dir The directory holding objects of type TYPE.
+     * @param type The type of the objects in DIR.
+     */
+    private static void compressObjects(File dir, String type) {
+        for (String name : objectNames(dir)) {
+            if (name.length() == OLD.length() + Utils.UID_LENGTH
+                    && name.startsWith(OLD)) {
+                String original = name.substring(OLD.length());
+                File object = Utils.join(dir, original);
+                object.delete();
+                if (!Utils.join(dir, name).renameTo(object)) {
+                    throw Utils.error("Could not upgrade object %s.",
+                            original);
+                }
+            }
+        }
+        for (String name : objectNames(dir)) {
+            if (name.length() != Utils.UID_LENGTH) {
+                continue;
+            }
+            File object = Utils.join(dir, name);
+            if (type.equals(ObjectStore.BLOB)) {
+                ObjectStore.write(dir, type, object);
+            } else {
+                ObjectStore.writeAs(dir, type, name,
+                        Utils.readContents(object));
+            }
+            object.delete();
+        }
+    }
+
+    /**
+     * Version 5 stores the files of each commit as trees in the new
+     * .gitlet/trees folder instead of as a map held by the commit. Each
+     * commit is rewritten in place, loose or packed, so it keeps its id.
+     * @param repository The repository we are upgrading.
+     */
+    private static void trees(Repository repository) {
+        repository.trees().mkdir();
+        for (String commitSHA1 : ObjectStore.list(repository.commits())) {
+            Commit commit = Utils.deserialize(ObjectStore.read(
+                    repository.commits(), ObjectStore.COMMIT, commitSHA1),
+                    Commit.class);
+            commit.setTrees(repository.trees());
+            if (commit.convertToTree()) {
+                ObjectStore.replace(repository.commits(), ObjectStore.COMMIT,
+                        commitSHA1, Utils.serialize(commit));
+            }
+        }
+    }
+
+    /**
+     * Version 6 stores commits, branches and the stage in the encoding
+     * described in Encoding instead of serializing them, and the name of
+     * the active branch as plain text. Commits are rewritten in place,
+     * loose or packed, so they keep the ids they had; only commits made
+     * from now on are named by the SHA1 of their encoding.
+     * @param repository The repository we are upgrading.
+     */
+    private static void encoding(Repository repository) {
+        for (String commitSHA1 : ObjectStore.list(repository.commits())) {
+            byte[] contents = ObjectStore.read(repository.commits(),
+                    ObjectStore.COMMIT, commitSHA1);
+            if (Encoding.isSerialized(contents)) {
+                ObjectStore.replace(repository.commits(), ObjectStore.COMMIT,
+                        commitSHA1, Utils.deserialize(contents, Commit.class)
+                        .encode());
+            }
+        }
+        for (String fileName
+                : Utils.plainFilenamesIn(repository.branches())) {
+            File branchFile = Utils.join(repository.branches(), fileName);
+            if (Encoding.isSerialized(Utils.readContents(branchFile))) {
+                Utils.replaceContents(branchFile, Utils.readObject(
+                        branchFile, Branch.class).encode());
+            }
+        }
+        File stage = repository.stageFile();
+        if (Encoding.isSerialized(Utils.readContents(stage))) {
+            Utils.replaceContents(stage, Utils.readObject(stage,
+                    Stage.class).encode());
+        }
+        File active = repository.activeBranchFile();
+        if (Encoding.isSerialized(Utils.readContents(active))) {
+            Utils.replaceContents(active, Utils.readObject(active,
+                    String.class));
+        }
+    }
+
+    /**
+     * Version 7 keeps each loose object in the subdirectory of its object
+     * directory named by the first digits of its SHA1 (see ObjectStore).
+     * Older repositories kept them all side by side, so we move each into
+     * its subdirectory, dropping any that is already there.
+     * @param repository The repository we are upgrading.
+     */
+    private static void fanOut(Repository repository) {
+        for (File dir : new File[] {repository.blobs(),
+            repository.commits(), repository.trees()}) {
+            if (!dir.isDirectory()) {
+                continue;
+            }
+            for (String name : Utils.plainFilenamesIn(dir)) {
+                if (!ObjectStore.isId(name)) {
+                    continue;
+                }
+                File object = Utils.join(dir, name);
+                File target = ObjectStore.file(dir, name);
+                target.getParentFile().mkdir();
+                if (target.exists()) {
+                    object.delete();
+                } else if (!object.renameTo(target)) {
+                    throw Utils.error("Could not upgrade object %s.", name);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces every old style blob name among the values of BLOBS by
+     * its content-addressed name.
+     * @param blobs A map from file names to blob names.
+     * @return True if BLOBS was changed.
+     */
+    private static boolean shortenAll(Map<String, String> blobs) {
+        boolean changed = false;
+        for (Map.Entry<String, String> entry : blobs.entrySet()) {
+            if (entry.getValue().length() > Utils.UID_LENGTH) {
+                entry.setValue(shorten(entry.getValue()));
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Returns the content-addressed name of the old style blob name BLOB.
+     * @param blob A blob name made of two SHA1s.
+     * @return The SHA1 of the contents of BLOB.
+     */
+    private static String shorten(String blob) {
+        return blob.substring(0, Utils.UID_LENGTH);
+    }
+}
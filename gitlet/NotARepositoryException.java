@@ -0,0 +1,12 @@
+package gitlet;
+
+/** Thrown when a command is run outside of a Gitlet repository.
+ *  @author Wilson Chu
+ */
+public class NotARepositoryException extends GitletException {
+
+    /** A NotARepositoryException with MSG as its message. */
+    NotARepositoryException(String msg) {
+        super(msg);
+    }
+}
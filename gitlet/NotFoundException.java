@@ -0,0 +1,13 @@
+package gitlet;
+
+/** Thrown when a file, commit or branch that a command names does
+ *  not exist.
+ *  @author Wilson Chu
+ */
+public class NotFoundException extends GitletException {
+
+    /** A NotFoundException with MSG as its message. */
+    NotFoundException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,145 @@
+package gitlet;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * A bounded cache of decoded objects, keyed by their ids. Since objects
+ * are named by the SHA1 of their contents, a cached object can never go
+ * stale. The cache holds at most a given number of objects and a given
+ * total weight, which is whatever measure of their size the cache was
+ * made with, evicting the least recently used objects past either bound.
+ * Lookups are counted as hits or misses.
+ *
+ * A cache may be shared by several threads. Objects are loaded outside
+ * of its lock, so two threads missing the same object may both load it;
+ * cached objects are shared and must not be changed.
+ * @param <V> The type of the cached objects.
+ * @author Wilson Chu
+ */
+class ObjectCache<V> {
+
+    /** The cached objects, in least recently used order. */
+    private final LinkedHashMap<String, V> _objects =
+            new LinkedHashMap<>(16, 0.75f, true);
+
+    /** The weight of each cached object. */
+    private final ToLongFunction<V> _weigher;
+
+    /** The most objects we hold. */
+    private final int _maxEntries;
+
+    /** The largest total weight we hold. */
+    private final long _maxWeight;
+
+    /** The total weight of _objects. */
+    private long _weight;
+
+    /** The number of lookups that found their object. */
+    private long _hits;
+
+    /** The number of lookups that had to load their object. */
+    private long _misses;
+
+    /**
+     * An empty cache of at most MAXENTRIES objects weighing at most
+     * MAXWEIGHT in all, as measured by WEIGHER.
+     * @param maxEntries The most objects the cache holds.
+     * @param maxWeight The largest total weight the cache holds.
+     * @param weigher The weight of an object.
+     */
+    ObjectCache(int maxEntries, long maxWeight, ToLongFunction<V> weigher) {
+        _maxEntries = maxEntries;
+        _maxWeight = maxWeight;
+        _weigher = weigher;
+    }
+
+    /**
+     * Returns the object ID, from THIS cache if it holds it and from
+     * LOADER otherwise, in which case it is cached. An object heavier than
+     * a quarter of our bound is returned without being cached.
+     * @param id The id of an object.
+     * @param loader Loads the object from its id.
+     * @return The object.
+     */
+    V get(String id, Function<String, V> loader) {
+        synchronized (this) {
+            V result = _objects.get(id);
+            if (result != null) {
+                _hits += 1;
+                return result;
+            }
+            _misses += 1;
+        }
+        V result = loader.apply(id);
+        long weight = _weigher.applyAsLong(result);
+        if (weight > _maxWeight / 4) {
+            return result;
+        }
+        synchronized (this) {
+            V old = _objects.put(id, result);
+            _weight += weight - (old == null ? 0
+                    : _weigher.applyAsLong(old));
+            Iterator<V> lru = _objects.values().iterator();
+            while (_objects.size() > _maxEntries || _weight > _maxWeight) {
+                _weight -= _weigher.applyAsLong(lru.next());
+                lru.remove();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Drops the object ID from THIS cache, for an object whose encoding
+     * was rewritten in place.
+     * @param id The id of an object.
+     */
+    synchronized void remove(String id) {
+        V old = _objects.remove(id);
+        if (old != null) {
+            _weight -= _weigher.applyAsLong(old);
+        }
+    }
+
+    /** Empties THIS cache and zeroes its counters. */
+    synchronized void clear() {
+        _objects.clear();
+        _weight = 0;
+        _hits = 0;
+        _misses = 0;
+    }
+
+    /**
+     * Returns the number of lookups that found their object cached.
+     * @return The number of hits.
+     */
+    synchronized long hits() {
+        return _hits;
+    }
+
+    /**
+     * Returns the number of lookups that had to load their object.
+     * @return The number of misses.
+     */
+    synchronized long misses() {
+        return _misses;
+    }
+
+    /**
+     * Returns the number of objects we hold.
+     * @return The size of THIS cache.
+     */
+    synchronized int size() {
+        return _objects.size();
+    }
+
+    /**
+     * Returns the total weight of the objects we hold.
+     * @return The weight of THIS cache.
+     */
+    synchronized long weight() {
+        return _weight;
+    }
+}
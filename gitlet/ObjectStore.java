@@ -0,0 +1,668 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The on-disk format shared by every object in .gitlet/blobs,
+ * .gitlet/trees and .gitlet/commits. An object file is a zlib stream
+ * whose inflated contents are a header made of the object type, a space,
+ * the size of the contents in decimal and a zero byte, followed by the
+ * contents themselves. Objects are named by the SHA1 of their contents,
+ * which is computed while they are streamed in, so neither writing nor
+ * reading an object needs to hold it in memory.
+ *
+ * New objects are written as loose files. A loose object is stored in
+ * the subdirectory of the object directory named by the first two
+ * digits of its SHA1, under the remaining 38, so that no directory
+ * holds more than a 256th of the objects. The repack command later moves
+ * them into packs (see Pack), where they are stored byte for byte as
+ * they were in their loose files; reads look for a loose file first and
+ * then in the packs of the object directory.
+ *
+ * The compression level may be set with the gitlet.compression system
+ * property (0 to 9, as for java.util.zip.Deflater); it defaults to
+ * Deflater.DEFAULT_COMPRESSION.
+ * @author Wilson Chu
+ */
+class ObjectStore {
+
+    /** The type of the objects holding file contents. */
+    static final String BLOB = "blob";
+
+    /** The type of the objects holding the directories of commits. */
+    static final String TREE = "tree";
+
+    /** The type of the objects holding encoded commits. */
+    static final String COMMIT = "commit";
+
+    /** The size of the buffer objects are streamed through. */
+    static final int BUFFER = 1 << 16;
+
+    /** The number of digits of a SHA1 that name the subdirectory of its
+     *  loose object. */
+    static final int FANOUT_DIGITS = 2;
+
+    /** The longest header we accept when reading an object. */
+    private static final int MAX_HEADER = 32;
+
+    /**
+     * The size of the buffer the header of an object is read through,
+     * one byte at a time. Larger reads of the contents bypass it.
+     */
+    private static final int HEADER_BUFFER = 512;
+
+    /** The digits of a hexadecimal SHA1. */
+    private static final char[] HEX_DIGITS = "0123456789abcdef"
+            .toCharArray();
+
+    /** The packs of each object directory we have looked in so far, for
+     *  every repository open in this process. */
+    private static final ConcurrentHashMap<File, List<Pack>> PACKS =
+            new ConcurrentHashMap<>();
+
+    /** The most commits we keep decoded for each commits folder. */
+    static final int COMMIT_CACHE_ENTRIES = 8192;
+
+    /** The most bytes of commit messages we keep decoded for each
+     *  commits folder. */
+    static final long COMMIT_CACHE_WEIGHT = 1L << 24;
+
+    /** The decoded commits of each commits folder we have read from. */
+    private static final ConcurrentHashMap<File, ObjectCache<Commit>>
+            COMMITS = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the compression level used for new objects.
+     * @return A level accepted by java.util.zip.Deflater.
+     */
+    static int compressionLevel() {
+        return Integer.getInteger("gitlet.compression",
+                Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Stores CONTENTS as an object of type TYPE in DIR, unless DIR already
+     * holds it.
+     * @param dir The directory holding objects of this type.
+     * @param type The type of the object.
+     * @param contents The contents of the object.
+     * @return The SHA1 of CONTENTS, which is also the object's name.
+     */
+    static String write(File dir, String type, byte[] contents) {
+        String sha1 = Utils.sha1((Object) contents);
+        writeAs(dir, type, sha1, contents);
+        return sha1;
+    }
+
+    /**
+     * Stores CONTENTS as the object SHA1 of type TYPE in DIR, unless DIR
+     * already holds it. Only upgrades of older repositories, whose
+     * commits are not always named by the SHA1 of their contents, should
+     * need to pick the name themselves.
+     * @param dir The directory holding objects of this type.
+     * @param type The type of the object.
+     * @param sha1 The name of the object.
+     * @param contents The contents of the object.
+     */
+    static void writeAs(File dir, String type, String sha1, byte[] contents) {
+        if (contains(dir, sha1)) {
+            return;
+        }
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(dir.toPath(), "tmp", null);
+            try (OutputStream out = deflating(temp)) {
+                out.write(header(type, contents.length));
+                out.write(contents);
+            }
+            install(temp, dir, sha1);
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw Utils.error("Could not write object %s.", sha1);
+        }
+    }
+
+    /**
+     * Stores CONTENTS as the object SHA1 of type TYPE in DIR, replacing
+     * any copy of it that DIR already holds. A packed copy is shadowed by
+     * the new loose object until the next repack drops it. Only upgrades
+     * of older repositories should ever change the contents of an object.
+     * @param dir The directory holding objects of this type.
+     * @param type The type of the object.
+     * @param sha1 The name of the object.
+     * @param contents The new contents of the object.
+     */
+    static void replace(File dir, String type, String sha1,
+                        byte[] contents) {
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(dir.toPath(), "tmp", null);
+            try (OutputStream out = deflating(temp)) {
+                out.write(header(type, contents.length));
+                out.write(contents);
+            }
+            File object = file(dir, sha1);
+            object.getParentFile().mkdir();
+            Files.move(temp, object.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw Utils.error("Could not write object %s.", sha1);
+        }
+        if (type.equals(COMMIT)) {
+            commitCache(dir).remove(sha1);
+        }
+    }
+
+    /**
+     * Stores the contents of SOURCE as an object of type TYPE in DIR,
+     * hashing them while they are compressed into a temporary file that
+     * is then renamed to their SHA1. If that object already exists, the
+     * temporary file is simply discarded.
+     * @param dir The directory holding objects of this type.
+     * @param type The type of the object.
+     * @param source The file holding the contents of the object.
+     * @return The SHA1 of the contents of SOURCE.
+     */
+    static String write(File dir, String type, File source) {
+        MessageDigest md = sha1Digest();
+        Path temp = null;
+        try (FileChannel in = FileChannel.open(source.toPath(),
+                StandardOpenOption.READ)) {
+            long size = in.size();
+            long copied = 0;
+            temp = Files.createTempFile(dir.toPath(), "tmp", null);
+            try (OutputStream out = deflating(temp)) {
+                out.write(header(type, size));
+                ByteBuffer buffer = ByteBuffer.allocate(BUFFER);
+                while (in.read(buffer) != -1) {
+                    md.update(buffer.array(), 0, buffer.position());
+                    out.write(buffer.array(), 0, buffer.position());
+                    copied += buffer.position();
+                    buffer.clear();
+                }
+            }
+            if (copied != size) {
+                throw Utils.error("%s changed while it was being read.",
+                        source.getName());
+            }
+            String sha1 = toHex(md.digest());
+            install(temp, dir, sha1);
+            return sha1;
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw Utils.error("Could not store %s.", source.getName());
+        } catch (GitletException e) {
+            deleteQuietly(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the SHA1 that the contents of FILE would be stored under,
+     * without storing them.
+     * @param file The file we want to hash.
+     * @return The SHA1 of the contents of FILE.
+     */
+    static String hash(File file) {
+        MessageDigest md = sha1Digest();
+        try (FileChannel in = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER);
+            while (in.read(buffer) != -1) {
+                md.update(buffer.array(), 0, buffer.position());
+                buffer.clear();
+            }
+        } catch (IOException e) {
+            throw Utils.error("Could not read %s.", file.getName());
+        }
+        return toHex(md.digest());
+    }
+
+    /**
+     * Opens the object SHA1 in DIR, checking that it has type TYPE. The
+     * returned stream is positioned at the start of the contents and
+     * inflates them as they are read.
+     * @param dir The directory holding objects of this type.
+     * @param type The type we expect the object to have.
+     * @param sha1 The name of the object.
+     * @return A stream over the contents of the object.
+     */
+    static InputStream open(File dir, String type, String sha1) {
+        File object = file(dir, sha1);
+        InputStream in = null;
+        try {
+            if (object.exists()) {
+                in = inflating(Files.newInputStream(object.toPath()),
+                        object.length());
+            } else {
+                in = packed(dir, sha1);
+            }
+            StringBuilder header = new StringBuilder();
+            for (int c = in.read(); c != 0; c = in.read()) {
+                if (c == -1 || header.length() > MAX_HEADER) {
+                    throw Utils.error("Corrupted object %s.", sha1);
+                }
+                header.append((char) c);
+            }
+            if (!header.toString().startsWith(type + " ")) {
+                throw Utils.error("Object %s is not a %s.", sha1, type);
+            }
+            return in;
+        } catch (IOException e) {
+            closeQuietly(in);
+            throw Utils.error("Could not read object %s.", sha1);
+        } catch (GitletException e) {
+            closeQuietly(in);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the contents of the object SHA1 of type TYPE in DIR.
+     * @param dir The directory holding objects of this type.
+     * @param type The type we expect the object to have.
+     * @param sha1 The name of the object.
+     * @return The inflated contents of the object.
+     */
+    static byte[] read(File dir, String type, String sha1) {
+        try (InputStream in = open(dir, type, sha1)) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw Utils.error("Could not read object %s.", sha1);
+        }
+    }
+
+    /**
+     * Writes the contents of the object SHA1 of type TYPE in DIR to FILE,
+     * creating or overwriting it as needed.
+     * @param dir The directory holding objects of this type.
+     * @param type The type we expect the object to have.
+     * @param sha1 The name of the object.
+     * @param file The file we are writing.
+     */
+    static void copyTo(File dir, String type, String sha1, File file) {
+        try (InputStream in = open(dir, type, sha1);
+             OutputStream out = Files.newOutputStream(file.toPath())) {
+            in.transferTo(out);
+        } catch (IOException e) {
+            throw Utils.error("Could not write %s.", file.getName());
+        }
+    }
+
+    /**
+     * Returns whether the object SHA1 exists in DIR.
+     * @param dir The directory holding objects of this type.
+     * @param sha1 The name of the object.
+     * @return True if the object exists.
+     */
+    static boolean contains(File dir, String sha1) {
+        if (file(dir, sha1).isFile()) {
+            return true;
+        }
+        for (Pack pack : packs(dir)) {
+            if (pack.indexOf(sha1) != -1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the ids of every object in DIR, loose or packed.
+     * @param dir The directory holding objects of one type.
+     * @return The ids in sorted order.
+     */
+    static List<String> list(File dir) {
+        TreeSet<String> result = new TreeSet<>(loose(dir));
+        for (Pack pack : packs(dir)) {
+            for (int i = 0; i < pack.size(); i += 1) {
+                result.add(pack.sha1(i));
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Returns the ids of the loose objects of DIR.
+     * @param dir The directory holding objects of one type.
+     * @return The ids, in no particular order.
+     */
+    static List<String> loose(File dir) {
+        ArrayList<String> result = new ArrayList<>();
+        String[] subdirectories = dir.list();
+        if (subdirectories == null) {
+            return result;
+        }
+        for (String subdirectory : subdirectories) {
+            if (subdirectory.length() != FANOUT_DIGITS) {
+                continue;
+            }
+            File[] files = Utils.join(dir, subdirectory).listFiles();
+            if (files == null) {
+                continue;
+            }
+            for (File file : files) {
+                String sha1 = subdirectory + file.getName();
+                if (isId(sha1) && file.isFile()) {
+                    result.add(sha1);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the file holding the loose object SHA1 of DIR, whether or
+     * not it exists.
+     * @param dir The directory holding objects of this type.
+     * @param sha1 The name of the object.
+     * @return The file, inside the fan-out subdirectory of SHA1.
+     */
+    static File file(File dir, String sha1) {
+        int split = Math.min(FANOUT_DIGITS, sha1.length());
+        return Utils.join(dir, sha1.substring(0, split),
+                sha1.substring(split));
+    }
+
+    /**
+     * Moves every loose object of DIR, along with the contents of its
+     * existing packs, into as few new packs as possible, then deletes
+     * the loose objects, the fan-out directories they leave empty and the
+     * old packs. Successive versions of the same file, as listed in
+     * HISTORIES, are stored as deltas.
+     * @param dir The directory holding objects of one type.
+     * @param histories The ids of the versions of each file, oldest
+     *                  first.
+     */
+    static void repack(File dir, List<List<String>> histories) {
+        List<Pack> old = packs(dir);
+        ArrayList<String> packed = new ArrayList<>();
+        List<Pack> packs = Pack.repack(dir, old, histories, packed);
+        PACKS.put(dir, packs);
+        for (Pack pack : old) {
+            boolean rewritten = false;
+            for (Pack newPack : packs) {
+                rewritten |= newPack.file().equals(pack.file());
+            }
+            if (!rewritten) {
+                pack.delete();
+            }
+        }
+        HashSet<File> fanOuts = new HashSet<>();
+        for (String name : packed) {
+            File object = file(dir, name);
+            object.delete();
+            fanOuts.add(object.getParentFile());
+        }
+        for (File fanOut : fanOuts) {
+            /* Fails, leaving it be, unless the directory is empty. */
+            fanOut.delete();
+        }
+    }
+
+    /**
+     * Returns whether NAME looks like the name of an object.
+     * @param name A file name.
+     * @return True if NAME is a lowercase hexadecimal SHA1.
+     */
+    static boolean isId(String name) {
+        return name.length() == Utils.UID_LENGTH
+                && name.chars().allMatch(c -> Character.digit(c, 16) != -1
+                        && !Character.isUpperCase(c));
+    }
+
+    /* COMMITS */
+
+    /**
+     * Stores COMMIT in the commits folder DIR.
+     * @param dir The commits folder of a repository.
+     * @param commit The commit we are storing.
+     * @return The SHA1 of the encoded commit, which is its id.
+     */
+    static String writeCommit(File dir, Commit commit) {
+        return write(dir, COMMIT, commit.encode());
+    }
+
+    /**
+     * Returns the commit SHA1 from the commits folder DIR, decoding it
+     * only if it is not in the commit cache of DIR. The commit is shared
+     * with every other reader and must not be changed.
+     * @param dir The commits folder of a repository.
+     * @param sha1 The id of the commit.
+     * @return The decoded commit.
+     */
+    static Commit readCommit(File dir, String sha1) {
+        return commitCache(dir).get(sha1, id ->
+                Commit.decode(read(dir, COMMIT, id)));
+    }
+
+    /**
+     * Returns the cache of decoded commits of the commits folder DIR,
+     * which every repository open in this process shares.
+     * @param dir The commits folder of a repository.
+     * @return Its commit cache.
+     */
+    static ObjectCache<Commit> commitCache(File dir) {
+        return COMMITS.computeIfAbsent(dir, unused -> new ObjectCache<>(
+                COMMIT_CACHE_ENTRIES, COMMIT_CACHE_WEIGHT,
+                commit -> commit.getCommitMessage().length()));
+    }
+
+    /* HELPERS */
+
+    /**
+     * Returns the inflated header of an object.
+     * @param type The type of the object.
+     * @param size The size of its contents.
+     * @return The header bytes.
+     */
+    private static byte[] header(String type, long size) {
+        return (type + " " + size + "\0").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns a stream that compresses whatever is written to it into
+     * the file at PATH.
+     * @param path The file we are writing.
+     * @return The compressing stream.
+     */
+    private static OutputStream deflating(Path path) throws IOException {
+        Deflater deflater = new Deflater(compressionLevel());
+        return new DeflaterOutputStream(Channels.newOutputStream(
+                FileChannel.open(path, StandardOpenOption.WRITE)), deflater,
+                BUFFER) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                deflater.end();
+            }
+        };
+    }
+
+    /**
+     * Returns a stream that inflates the SIZE bytes read from IN.
+     * @param in The compressed stream.
+     * @param size The number of bytes IN holds, so that small objects
+     *             are not read through a full-sized buffer.
+     * @return The inflating stream.
+     */
+    static InputStream inflating(InputStream in, long size) {
+        Inflater inflater = new Inflater();
+        return new BufferedInputStream(new InflaterInputStream(in, inflater,
+                (int) Math.max(1, Math.min(BUFFER, size))) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                inflater.end();
+            }
+        }, HEADER_BUFFER);
+    }
+
+    /**
+     * Returns CONTENTS compressed as a zlib stream.
+     * @param contents The bytes to compress.
+     * @return The compressed bytes.
+     */
+    static byte[] deflate(byte[] contents) {
+        Deflater deflater = new Deflater(compressionLevel());
+        try {
+            deflater.setInput(contents);
+            deflater.finish();
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            byte[] buffer = new byte[Math.min(BUFFER, contents.length + 64)];
+            while (!deflater.finished()) {
+                result.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return result.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Returns a stream inflating the packed object SHA1 of DIR.
+     * @param dir The directory holding objects of this type.
+     * @param sha1 The name of the object.
+     * @return The inflating stream.
+     */
+    private static InputStream packed(File dir, String sha1)
+            throws IOException {
+        for (Pack pack : packs(dir)) {
+            int i = pack.indexOf(sha1);
+            if (i != -1) {
+                return pack.open(i);
+            }
+        }
+        throw new NoSuchFileException(sha1);
+    }
+
+    /**
+     * Forgets the packs of every directory whose packs changed since we
+     * loaded them, so that a process running many commands sees packs
+     * written or deleted by other processes.
+     */
+    static void refresh() {
+        PACKS.entrySet().removeIf(entry ->
+                !Pack.isCurrent(entry.getKey(), entry.getValue()));
+    }
+
+    /**
+     * Returns the packs of DIR, loading them the first time we ask.
+     * @param dir The directory holding objects of one type.
+     * @return Its packs.
+     */
+    private static List<Pack> packs(File dir) {
+        return PACKS.computeIfAbsent(dir, Pack::loadAll);
+    }
+
+    /**
+     * Renames the finished temporary object TEMP to the object SHA1 of
+     * DIR, discarding it if DIR already holds that object.
+     * @param temp The temporary file.
+     * @param dir The directory holding objects of this type.
+     * @param sha1 The final name of the object.
+     */
+    private static void install(Path temp, File dir, String sha1)
+            throws IOException {
+        if (contains(dir, sha1)) {
+            Files.delete(temp);
+        } else {
+            File object = file(dir, sha1);
+            object.getParentFile().mkdir();
+            Files.move(temp, object.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Returns a fresh SHA-1 MessageDigest.
+     * @return The digest.
+     */
+    static MessageDigest sha1Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException excp) {
+            throw new IllegalArgumentException(
+                    "System does not support SHA-1");
+        }
+    }
+
+    /**
+     * Returns DIGEST as a hexadecimal String.
+     * @param digest The bytes of a SHA1.
+     * @return The hexadecimal SHA1.
+     */
+    static String toHex(byte[] digest) {
+        char[] result = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i += 1) {
+            result[2 * i] = HEX_DIGITS[(digest[i] >> 4) & 0xf];
+            result[2 * i + 1] = HEX_DIGITS[digest[i] & 0xf];
+        }
+        return new String(result);
+    }
+
+    /**
+     * Returns the bytes of the hexadecimal SHA1, the inverse of toHex.
+     * @param sha1 A hexadecimal SHA1.
+     * @return Its bytes.
+     */
+    static byte[] toBytes(String sha1) {
+        byte[] result = new byte[sha1.length() / 2];
+        for (int i = 0; i < result.length; i += 1) {
+            result[i] = (byte) (Character.digit(sha1.charAt(2 * i), 16) << 4
+                    | Character.digit(sha1.charAt(2 * i + 1), 16));
+        }
+        return result;
+    }
+
+    /**
+     * Deletes the file at PATH if there is one, ignoring any error.
+     * @param path The file to delete, or null.
+     */
+    private static void deleteQuietly(Path path) {
+        if (path != null) {
+            path.toFile().delete();
+        }
+    }
+
+    /**
+     * Closes IN if it is open, ignoring any error.
+     * @param in The stream to close, or null.
+     */
+    private static void closeQuietly(InputStream in) {
+        if (in != null) {
+            try {
+                in.close();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,904 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A pack file holding many objects of one object directory, together
+ * with the index used to find them. Packs live in the pack folder of the
+ * object directory they belong to and come in pairs named after the SHA1
+ * of the pack file: pack-SHA1.pack and pack-SHA1.idx.
+ *
+ * The pack file is a magic number and a version followed by the objects
+ * and the SHA1 of everything before them. Each object starts with a kind
+ * byte. A FULL object is then stored exactly as its loose file would be.
+ * A DELTA object is the id of a base object in the same pack followed by
+ * the zlib-compressed Delta that turns the inflated base, header and
+ * all, into the inflated object. Chains of deltas are at most MAX_DEPTH
+ * long, and the objects rebuilt while following them are kept in a small
+ * cache, so reading consecutive versions of a file does not rebuild the
+ * same bases over and over. Packs of version 1 have no kind bytes and
+ * hold only full objects. The index is a magic number and a version, a
+ * 256 entry fan-out table whose entry B is the number of objects whose
+ * id starts with a byte no greater than B, the sorted 20 byte ids, the
+ * offset and the length of each object in the pack, and the SHA1 of the
+ * pack file. Both files are memory-mapped, so finding an object is a
+ * binary search over the ids sharing its first byte, and reading it
+ * needs no system calls.
+ * @author Wilson Chu
+ */
+class Pack {
+
+    /** The name of the folder holding the packs of an object directory. */
+    static final String DIRECTORY = "pack";
+
+    /** The largest pack file repack writes before starting another. */
+    static final long MAX_PACK = 1L << 30;
+
+    /** The buffer size used to inflate objects of unknown size. */
+    private static final int BUFFER_HINT = 8192;
+
+    /** Objects whose loose file is larger than this are never packed. */
+    static final long MAX_PACKED_OBJECT = 1L << 26;
+
+    /** The magic number starting a pack file ("GPAK"). */
+    private static final int PACK_MAGIC = 0x4750414b;
+
+    /** The magic number starting an index file ("GIDX"). */
+    private static final int INDEX_MAGIC = 0x47494458;
+
+    /** The format version of the pack and index files we write. */
+    private static final int VERSION = 2;
+
+    /** The kind byte of an object stored whole. */
+    private static final int FULL = 0;
+
+    /** The kind byte of an object stored as a delta. */
+    private static final int DELTA = 1;
+
+    /** The longest chain of deltas repack will create. */
+    static final int MAX_DEPTH = 10;
+
+    /** The number of earlier versions of a file tried as delta bases. */
+    static final int WINDOW = 10;
+
+    /** Objects larger than this, inflated, are never stored as deltas. */
+    static final int MAX_DELTA_OBJECT = 1 << 23;
+
+    /** The total size of the rebuilt objects each pack keeps cached. */
+    static final long DELTA_CACHE = 1L << 25;
+
+    /** The size of the magic number and version starting both files. */
+    private static final int HEADER = 8;
+
+    /** The number of entries in the fan-out table. */
+    private static final int FANOUT = 256;
+
+    /** The number of bytes in an object id or a checksum. */
+    private static final int ID_BYTES = 20;
+
+    /** The pack file. */
+    private final File _packFile;
+
+    /** The index file. */
+    private final File _indexFile;
+
+    /** The mapped contents of the index file. */
+    private final MappedByteBuffer _index;
+
+    /** The mapped contents of the pack file. */
+    private final MappedByteBuffer _data;
+
+    /** The number of objects in this pack. */
+    private final int _size;
+
+    /** The position of the first id in _index. */
+    private final int _ids;
+
+    /** The position of the first offset in _index. */
+    private final int _offsets;
+
+    /** The position of the first length in _index. */
+    private final int _lengths;
+
+    /** The format version of this pack. */
+    private final int _version;
+
+    /**
+     * Recently rebuilt objects of this pack, inflated, keyed by their
+     * position in the index and kept in least recently used order.
+     */
+    private final LinkedHashMap<Integer, byte[]> _cache =
+            new LinkedHashMap<>(16, 0.75f, true);
+
+    /** The total size of the objects in _cache. */
+    private long _cacheWeight;
+
+    /**
+     * Maps the pack whose index is INDEXFILE, checking that the index
+     * belongs to the pack next to it.
+     * @param indexFile The index file of the pack.
+     */
+    private Pack(File indexFile) {
+        String name = indexFile.getName();
+        _indexFile = indexFile;
+        _packFile = Utils.join(indexFile.getParentFile(),
+                name.substring(0, name.length() - ".idx".length()) + ".pack");
+        _index = map(_indexFile);
+        _data = map(_packFile);
+        _version = _data.capacity() < HEADER ? 0 : _data.getInt(4);
+        if (_index.capacity() < HEADER + FANOUT * 4 + ID_BYTES
+                || _index.getInt(0) != INDEX_MAGIC
+                || _index.getInt(4) != _version
+                || _data.capacity() < HEADER + ID_BYTES
+                || _data.getInt(0) != PACK_MAGIC
+                || _version < 1 || _version > VERSION) {
+            throw Utils.error("Corrupted pack %s.", name);
+        }
+        _size = _index.getInt(HEADER + (FANOUT - 1) * 4);
+        _ids = HEADER + FANOUT * 4;
+        _offsets = _ids + _size * ID_BYTES;
+        _lengths = _offsets + _size * 8;
+        if (_size < 0 || _lengths + _size * 4 + ID_BYTES
+                != _index.capacity()
+                || !_index.slice(_lengths + _size * 4, ID_BYTES).equals(
+                        _data.slice(_data.capacity() - ID_BYTES,
+                                ID_BYTES))) {
+            throw Utils.error("Corrupted pack %s.", name);
+        }
+    }
+
+    /**
+     * Returns every pack of the object directory DIR.
+     * @param dir An object directory.
+     * @return The packs found in its pack folder.
+     */
+    static List<Pack> loadAll(File dir) {
+        ArrayList<Pack> result = new ArrayList<>();
+        List<String> names = Utils.plainFilenamesIn(Utils.join(dir,
+                DIRECTORY));
+        if (names != null) {
+            for (String name : names) {
+                if (name.endsWith(".idx")) {
+                    result.add(new Pack(Utils.join(dir, DIRECTORY, name)));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether PACKS, loaded from the object directory DIR, are
+     * still exactly the packs of DIR.
+     * @param dir An object directory.
+     * @param packs The packs we loaded from it.
+     * @return False if a pack was written or deleted since.
+     */
+    static boolean isCurrent(File dir, List<Pack> packs) {
+        HashSet<String> loaded = new HashSet<>();
+        for (Pack pack : packs) {
+            loaded.add(pack._indexFile.getName());
+        }
+        HashSet<String> current = new HashSet<>();
+        List<String> names = Utils.plainFilenamesIn(Utils.join(dir,
+                DIRECTORY));
+        if (names != null) {
+            for (String name : names) {
+                if (name.endsWith(".idx")) {
+                    current.add(name);
+                }
+            }
+        }
+        return loaded.equals(current);
+    }
+
+    /**
+     * Returns the number of objects in THIS pack.
+     * @return The number of objects.
+     */
+    int size() {
+        return _size;
+    }
+
+    /**
+     * Returns the id of the Ith object of THIS pack, in sorted order.
+     * @param i The position of the object in the index.
+     * @return Its SHA1.
+     */
+    String sha1(int i) {
+        byte[] id = new byte[ID_BYTES];
+        _index.get(_ids + i * ID_BYTES, id);
+        return ObjectStore.toHex(id);
+    }
+
+    /**
+     * Returns the position of the object SHA1 in THIS pack's index.
+     * @param sha1 The id of an object.
+     * @return Its position, or -1 if THIS pack does not hold it.
+     */
+    int indexOf(String sha1) {
+        if (!ObjectStore.isId(sha1)) {
+            return -1;
+        }
+        byte[] id = ObjectStore.toBytes(sha1);
+        int first = id[0] & 0xff;
+        int low = first == 0 ? 0 : _index.getInt(HEADER + (first - 1) * 4);
+        int high = _index.getInt(HEADER + first * 4) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(mid, id);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a stream over the inflated Ith object of THIS pack, header
+     * first, just as if it were read from its loose file.
+     * @param i The position of the object in the index.
+     * @return The inflating stream.
+     */
+    InputStream open(int i) {
+        if (kind(i) == DELTA) {
+            return new ByteArrayInputStream(inflated(i));
+        }
+        ByteBuffer payload = payload(i);
+        return ObjectStore.inflating(stream(payload), payload.remaining());
+    }
+
+    /**
+     * Returns the bytes the loose file of the Ith object of THIS pack
+     * would hold.
+     * @param i The position of the object in the index.
+     * @return The compressed object.
+     */
+    ByteBuffer loose(int i) {
+        if (kind(i) == DELTA) {
+            return ByteBuffer.wrap(ObjectStore.deflate(inflated(i)));
+        }
+        return payload(i);
+    }
+
+    /**
+     * Returns the Ith object of THIS pack, inflated, header first.
+     * Objects rebuilt from deltas are cached, so threads take turns.
+     * @param i The position of the object in the index.
+     * @return The inflated object.
+     */
+    synchronized byte[] inflated(int i) {
+        byte[] result = _cache.get(i);
+        if (result != null) {
+            return result;
+        }
+        ArrayDeque<Integer> chain = new ArrayDeque<>();
+        int base = i;
+        while (result == null && kind(base) == DELTA) {
+            chain.push(base);
+            if (chain.size() > _size) {
+                throw Utils.error("Corrupted pack %s.", _packFile.getName());
+            }
+            base = indexOf(baseOf(base));
+            if (base == -1) {
+                throw Utils.error("Corrupted pack %s.", _packFile.getName());
+            }
+            result = _cache.get(base);
+        }
+        if (result == null) {
+            result = readAll(open(base));
+        }
+        while (!chain.isEmpty()) {
+            int delta = chain.pop();
+            result = Delta.apply(result, readAll(ObjectStore.inflating(
+                    stream(deltaPayload(delta)), BUFFER_HINT)));
+            cache(delta, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of deltas that must be applied to rebuild the
+     * Ith object of THIS pack.
+     * @param i The position of the object in the index.
+     * @return The length of its delta chain.
+     */
+    int depth(int i) {
+        int depth = 0;
+        while (kind(i) == DELTA && depth <= _size) {
+            i = indexOf(baseOf(i));
+            depth += 1;
+        }
+        return depth;
+    }
+
+    /**
+     * Returns the size the Ith object of THIS pack would have on its own,
+     * stored whole.
+     * @param i The position of the object in the index.
+     * @return The size of its compressed loose file, or of the inflated
+     *         object if it is a delta.
+     */
+    long fullSize(int i) {
+        if (kind(i) == DELTA) {
+            return inflated(i).length;
+        }
+        return payload(i).remaining();
+    }
+
+    /**
+     * Returns the pack file of THIS pack. Two packs with the same file
+     * hold the same objects.
+     * @return The pack file.
+     */
+    File file() {
+        return _packFile;
+    }
+
+    /**
+     * Deletes the files of THIS pack, index first, so that a pack whose
+     * index is found is always complete.
+     */
+    void delete() {
+        _indexFile.delete();
+        _packFile.delete();
+    }
+
+    /**
+     * Writes every object of DIR, loose or already packed in PACKS, into
+     * new packs of at most MAX_PACK bytes. Loose objects larger than
+     * MAX_PACKED_OBJECT are left alone. Neither the loose objects nor
+     * PACKS are removed; that is up to the caller once the new packs are
+     * in place.
+     *
+     * HISTORIES lists the successive versions of each file, oldest first.
+     * Each version is stored as a delta against whichever of the WINDOW
+     * versions before it gives the smallest delta, if that is smaller than
+     * the version itself, and the versions of a file are written next to
+     * each other. Objects in no history are stored whole.
+     * @param dir An object directory.
+     * @param packs The existing packs of DIR.
+     * @param histories The ids of the versions of each file.
+     * @param packed Filled with the names of the loose objects that were
+     *               packed.
+     * @return The new packs.
+     */
+    static List<Pack> repack(File dir, List<Pack> packs,
+                             List<List<String>> histories,
+                             List<String> packed) {
+        TreeMap<String, Object> objects = new TreeMap<>();
+        for (Pack pack : packs) {
+            for (int i = 0; i < pack.size(); i += 1) {
+                objects.put(pack.sha1(i), pack);
+            }
+        }
+        for (String name : ObjectStore.loose(dir)) {
+            File file = ObjectStore.file(dir, name);
+            if (file.length() <= MAX_PACKED_OBJECT) {
+                objects.put(name, file);
+                packed.add(name);
+            }
+        }
+        File packDir = Utils.join(dir, DIRECTORY);
+        packDir.mkdir();
+        ArrayList<Pack> result = new ArrayList<>();
+        Writer writer = null;
+        try {
+            LinkedHashSet<String> order = new LinkedHashSet<>();
+            HashMap<String, String> bases = new HashMap<>();
+            HashMap<String, byte[]> deltas = new HashMap<>();
+            findDeltas(objects, histories, order, bases, deltas);
+            order.addAll(objects.keySet());
+            for (String sha1 : order) {
+                Object source = objects.get(sha1);
+                String base = bases.get(sha1);
+                ByteBuffer entry;
+                if (base != null && writer != null && writer.holds(base)) {
+                    entry = ByteBuffer.wrap(deltas.get(sha1));
+                } else {
+                    base = null;
+                    entry = loose(source, sha1);
+                }
+                if (writer != null && writer.size() + entry.remaining()
+                        + 1 + ID_BYTES > MAX_PACK) {
+                    result.add(writer.finish());
+                    writer = null;
+                }
+                if (writer == null) {
+                    writer = new Writer(packDir);
+                }
+                if (base == null) {
+                    writer.addFull(sha1, entry);
+                } else {
+                    writer.addDelta(sha1, base, entry);
+                }
+            }
+            if (writer != null) {
+                result.add(writer.finish());
+            }
+        } catch (IOException e) {
+            if (writer != null) {
+                writer.abandon();
+            }
+            throw Utils.error("Could not write pack.");
+        }
+        return result;
+    }
+
+    /**
+     * Decides which objects in HISTORIES to store as deltas, filling
+     * ORDER with the objects of HISTORIES in the order they should be
+     * written, BASES with the base chosen for each delta, and DELTAS with
+     * the compressed delta itself.
+     * @param objects The source of every object, a Pack or a loose File.
+     * @param histories The ids of the versions of each file.
+     * @param order The objects in the order they should be written.
+     * @param bases The base of each object stored as a delta.
+     * @param deltas The compressed delta of each object in BASES.
+     */
+    private static void findDeltas(Map<String, Object> objects,
+                                   List<List<String>> histories,
+                                   LinkedHashSet<String> order,
+                                   Map<String, String> bases,
+                                   Map<String, byte[]> deltas)
+            throws IOException {
+        HashMap<String, Integer> depths = new HashMap<>();
+        for (List<String> history : histories) {
+            ArrayDeque<String> window = new ArrayDeque<>();
+            HashMap<String, byte[]> contents = new HashMap<>();
+            for (String sha1 : history) {
+                Object source = objects.get(sha1);
+                if (source == null || contents.containsKey(sha1)) {
+                    continue;
+                }
+                byte[] target = inflated(source, sha1);
+                if (target == null) {
+                    continue;
+                }
+                if (order.add(sha1)) {
+                    String best = null;
+                    byte[] bestDelta = null;
+                    long bestCost = Long.MAX_VALUE;
+                    for (String base : window) {
+                        int depth = depths.get(base);
+                        if (depth >= MAX_DEPTH) {
+                            continue;
+                        }
+                        byte[] delta = Delta.create(contents.get(base),
+                                target);
+                        long cost = (long) delta.length * MAX_DEPTH
+                                / (MAX_DEPTH - depth);
+                        if (cost < bestCost) {
+                            best = base;
+                            bestDelta = delta;
+                            bestCost = cost;
+                        }
+                    }
+                    depths.put(sha1, 0);
+                    if (best != null) {
+                        byte[] compressed = ObjectStore.deflate(bestDelta);
+                        if (compressed.length + ID_BYTES
+                                < fullSize(source, sha1)) {
+                            bases.put(sha1, best);
+                            deltas.put(sha1, compressed);
+                            depths.put(sha1, depths.get(best) + 1);
+                        }
+                    }
+                }
+                window.addLast(sha1);
+                contents.put(sha1, target);
+                if (window.size() > WINDOW) {
+                    contents.remove(window.removeFirst());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the object SHA1 from SOURCE, inflated, or null if it is too
+     * large to be part of a delta.
+     * @param source A Pack or a loose File.
+     * @param sha1 The id of the object.
+     * @return The inflated object, header first, or null.
+     */
+    private static byte[] inflated(Object source, String sha1)
+            throws IOException {
+        if (source instanceof Pack) {
+            Pack pack = (Pack) source;
+            int i = pack.indexOf(sha1);
+            if (pack.kind(i) == DELTA) {
+                return pack.inflated(i);
+            }
+        }
+        try (InputStream in = source instanceof Pack
+                ? ((Pack) source).open(((Pack) source).indexOf(sha1))
+                : ObjectStore.inflating(Files.newInputStream(
+                        ((File) source).toPath()), BUFFER_HINT)) {
+            byte[] result = in.readNBytes(MAX_DELTA_OBJECT + 1);
+            return result.length > MAX_DELTA_OBJECT ? null : result;
+        }
+    }
+
+    /**
+     * Returns the bytes of the loose file of the object SHA1 from SOURCE.
+     * @param source A Pack or a loose File.
+     * @param sha1 The id of the object.
+     * @return The compressed object.
+     */
+    private static ByteBuffer loose(Object source, String sha1)
+            throws IOException {
+        if (source instanceof Pack) {
+            Pack pack = (Pack) source;
+            return pack.loose(pack.indexOf(sha1));
+        }
+        return ByteBuffer.wrap(Files.readAllBytes(((File) source).toPath()));
+    }
+
+    /**
+     * Returns the size of the object SHA1 from SOURCE stored whole.
+     * @param source A Pack or a loose File.
+     * @param sha1 The id of the object.
+     * @return Its size.
+     */
+    private static long fullSize(Object source, String sha1) {
+        if (source instanceof Pack) {
+            Pack pack = (Pack) source;
+            return pack.fullSize(pack.indexOf(sha1));
+        }
+        return ((File) source).length();
+    }
+
+    /**
+     * Returns the kind of the Ith object of THIS pack.
+     * @param i The position of the object in the index.
+     * @return FULL or DELTA.
+     */
+    private int kind(int i) {
+        if (_version == 1) {
+            return FULL;
+        }
+        return stored(i).get(0);
+    }
+
+    /**
+     * Returns the stored bytes of the Ith object of THIS pack.
+     * @param i The position of the object in the index.
+     * @return A read-only view of the object in the mapped pack.
+     */
+    private ByteBuffer stored(int i) {
+        long offset = _index.getLong(_offsets + i * 8);
+        int length = _index.getInt(_lengths + i * 4);
+        return _data.slice((int) offset, length).asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the compressed loose file bytes of the full Ith object of
+     * THIS pack.
+     * @param i The position of a full object in the index.
+     * @return The bytes following its kind byte.
+     */
+    private ByteBuffer payload(int i) {
+        ByteBuffer stored = stored(i);
+        return _version == 1 ? stored : stored.position(1).slice();
+    }
+
+    /**
+     * Returns the id of the base of the Ith object of THIS pack.
+     * @param i The position of a delta in the index.
+     * @return The id of its base.
+     */
+    private String baseOf(int i) {
+        byte[] id = new byte[ID_BYTES];
+        stored(i).get(1, id);
+        return ObjectStore.toHex(id);
+    }
+
+    /**
+     * Returns the compressed delta of the Ith object of THIS pack.
+     * @param i The position of a delta in the index.
+     * @return The bytes following its base id.
+     */
+    private ByteBuffer deltaPayload(int i) {
+        return stored(i).position(1 + ID_BYTES).slice();
+    }
+
+    /**
+     * Adds RESULT, the rebuilt Ith object of THIS pack, to our cache,
+     * evicting the least recently used objects once the cache holds more
+     * than DELTA_CACHE bytes.
+     * @param i The position of the object in the index.
+     * @param result The inflated object.
+     */
+    private void cache(int i, byte[] result) {
+        if (result.length > DELTA_CACHE / 4) {
+            return;
+        }
+        byte[] old = _cache.put(i, result);
+        _cacheWeight += result.length - (old == null ? 0 : old.length);
+        Iterator<byte[]> lru = _cache.values().iterator();
+        while (_cacheWeight > DELTA_CACHE) {
+            _cacheWeight -= lru.next().length;
+            lru.remove();
+        }
+    }
+
+    /**
+     * Returns a stream over the remaining bytes of BUFFER.
+     * @param buffer The bytes to read.
+     * @return The stream.
+     */
+    private static InputStream stream(ByteBuffer buffer) {
+        return new InputStream() {
+            @Override
+            public int read() {
+                return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (len == 0) {
+                    return 0;
+                } else if (!buffer.hasRemaining()) {
+                    return -1;
+                }
+                len = Math.min(len, buffer.remaining());
+                buffer.get(b, off, len);
+                return len;
+            }
+        };
+    }
+
+    /**
+     * Reads all of IN and closes it.
+     * @param in An inflating stream.
+     * @return Everything IN held.
+     */
+    private static byte[] readAll(InputStream in) {
+        try (in) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw Utils.error("Could not read pack.");
+        }
+    }
+
+    /**
+     * Compares the Ith id of THIS pack's index with ID.
+     * @param i The position of an id in the index.
+     * @param id The 20 bytes of an id.
+     * @return A negative, zero or positive number as the Ith id is less
+     *         than, equal to or greater than ID.
+     */
+    private int compare(int i, byte[] id) {
+        int start = _ids + i * ID_BYTES;
+        for (int k = 0; k < ID_BYTES; k += 1) {
+            int cmp = (_index.get(start + k) & 0xff) - (id[k] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Maps the whole of FILE into memory, read-only.
+     * @param file The file to map.
+     * @return The mapped contents of FILE.
+     */
+    private static MappedByteBuffer map(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+        } catch (IOException e) {
+            throw Utils.error("Could not read pack %s.", file.getName());
+        }
+    }
+
+    /**
+     * Writes one new pack into a temporary file. The pack and its index
+     * are only given their final names once both are complete and on
+     * disk.
+     */
+    private static class Writer {
+
+        /**
+         * Starts a new pack in PACKDIR.
+         * @param packDir The folder the pack will live in.
+         */
+        Writer(File packDir) throws IOException {
+            _packDir = packDir;
+            _temp = Files.createTempFile(packDir.toPath(), "tmp", null);
+            _out = FileChannel.open(_temp, StandardOpenOption.WRITE);
+            _md = ObjectStore.sha1Digest();
+            write(ByteBuffer.allocate(HEADER).putInt(PACK_MAGIC)
+                    .putInt(VERSION).flip());
+        }
+
+        /**
+         * Returns the number of bytes written so far.
+         * @return The size of the pack so far.
+         */
+        long size() {
+            return _size;
+        }
+
+        /**
+         * Returns whether the object SHA1 has been written to this pack.
+         * @param sha1 The id of an object.
+         * @return True if this pack holds it.
+         */
+        boolean holds(String sha1) {
+            return _held.contains(sha1);
+        }
+
+        /**
+         * Appends the object SHA1, stored whole.
+         * @param sha1 The id of the object.
+         * @param loose The bytes of its loose file.
+         */
+        void addFull(String sha1, ByteBuffer loose) throws IOException {
+            start(sha1, 1 + loose.remaining());
+            write(ByteBuffer.wrap(new byte[] {FULL}));
+            write(loose);
+        }
+
+        /**
+         * Appends the object SHA1, stored as a delta against BASE.
+         * @param sha1 The id of the object.
+         * @param base The id of an object already in this pack.
+         * @param delta The compressed delta from BASE to SHA1.
+         */
+        void addDelta(String sha1, String base, ByteBuffer delta)
+                throws IOException {
+            start(sha1, 1 + ID_BYTES + delta.remaining());
+            write(ByteBuffer.wrap(new byte[] {DELTA}));
+            write(ByteBuffer.wrap(ObjectStore.toBytes(base)));
+            write(delta);
+        }
+
+        /**
+         * Records that the object SHA1, of LENGTH bytes, starts here.
+         * @param sha1 The id of the object.
+         * @param length The number of bytes it is stored in.
+         */
+        private void start(String sha1, int length) {
+            _held.add(sha1);
+            _ids.add(sha1);
+            _offsets.add(_size);
+            _lengths.add(length);
+        }
+
+        /**
+         * Completes the pack and its index and gives them their final
+         * names.
+         * @return The new pack.
+         */
+        Pack finish() throws IOException {
+            byte[] checksum = _md.digest();
+            _out.write(ByteBuffer.wrap(checksum));
+            _out.force(true);
+            _out.close();
+            String name = "pack-" + ObjectStore.toHex(checksum);
+            File packFile = Utils.join(_packDir, name + ".pack");
+            File indexFile = Utils.join(_packDir, name + ".idx");
+            Files.move(_temp, packFile.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE);
+
+            int count = _ids.size();
+            Integer[] sorted = new Integer[count];
+            for (int i = 0; i < count; i += 1) {
+                sorted[i] = i;
+            }
+            Arrays.sort(sorted, Comparator.comparing(_ids::get));
+            ByteBuffer index = ByteBuffer.allocate(HEADER + FANOUT * 4
+                    + count * (ID_BYTES + 8 + 4) + ID_BYTES);
+            index.putInt(INDEX_MAGIC).putInt(VERSION);
+            int[] fanout = new int[FANOUT];
+            for (String sha1 : _ids) {
+                fanout[Integer.parseInt(sha1.substring(0, 2), 16)] += 1;
+            }
+            for (int b = 0, total = 0; b < FANOUT; b += 1) {
+                total += fanout[b];
+                index.putInt(total);
+            }
+            for (int i : sorted) {
+                index.put(ObjectStore.toBytes(_ids.get(i)));
+            }
+            for (int i : sorted) {
+                index.putLong(_offsets.get(i));
+            }
+            for (int i : sorted) {
+                index.putInt(_lengths.get(i));
+            }
+            index.put(checksum).flip();
+            Path temp = Files.createTempFile(_packDir.toPath(), "tmp", null);
+            try (FileChannel out = FileChannel.open(temp,
+                    StandardOpenOption.WRITE)) {
+                while (index.hasRemaining()) {
+                    out.write(index);
+                }
+                out.force(true);
+            }
+            Files.move(temp, indexFile.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE);
+            return new Pack(indexFile);
+        }
+
+        /** Discards the unfinished pack. */
+        void abandon() {
+            try {
+                _out.close();
+            } catch (IOException e) {
+                return;
+            } finally {
+                _temp.toFile().delete();
+            }
+        }
+
+        /**
+         * Writes the remaining bytes of BUFFER to the pack, adding them
+         * to its checksum.
+         * @param buffer The bytes to write.
+         */
+        private void write(ByteBuffer buffer) throws IOException {
+            _md.update(buffer.duplicate());
+            _size += buffer.remaining();
+            while (buffer.hasRemaining()) {
+                _out.write(buffer);
+            }
+        }
+
+        /** The folder the pack will live in. */
+        private final File _packDir;
+
+        /** The temporary file holding the pack so far. */
+        private final Path _temp;
+
+        /** The channel writing _temp. */
+        private final FileChannel _out;
+
+        /** The running checksum of the pack. */
+        private final MessageDigest _md;
+
+        /** The number of bytes written so far. */
+        private long _size;
+
+        /** The ids of the objects written so far. */
+        private final HashSet<String> _held = new HashSet<>();
+
+        /** The ids of the objects written so far, in order. */
+        private final ArrayList<String> _ids = new ArrayList<>();
+
+        /** The offset of each object written so far. */
+        private final ArrayList<Long> _offsets = new ArrayList<>();
+
+        /** The length of each object written so far. */
+        private final ArrayList<Integer> _lengths = new ArrayList<>();
+    }
+}
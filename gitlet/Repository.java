@@ -0,0 +1,1420 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A gitlet repository: the working directory under some root folder and
+ * the .gitlet folder inside it. Each command of gitlet is a method of
+ * this class. A repository is opened once with open, or created with
+ * init, and then keeps its active branch, staging area, commit graph and
+ * index loaded from one command to the next, so that a program can run
+ * many commands without starting gitlet again, and work on several
+ * repositories at once as long as each is used by one thread at a time.
+ * Each command holds the lock of the repository while it runs (see
+ * RepositoryLock) and first reloads whatever another process or thread
+ * changed since the last one, so that threads and processes that each
+ * open the same repository never lose each other's updates.
+ * Commands that fail throw a GitletException, or one of its subclasses
+ * when the caller may want to tell that case apart, without changing
+ * the repository.
+ * @author Wilson Chu
+ */
+public class Repository {
+
+    /** The default seperator for when we give the user an output. */
+    public static final String SEPERATOR = "===";
+
+    /** The top of our working directory. */
+    private final File _root;
+
+    /** The .gitlet folder where all of our tracking will take place. */
+    private final File _gitlet;
+
+    /** The blobs folder where the blobs representing our files exist. */
+    private final File _blobs;
+
+    /** The commits folder where our commit history is placed. */
+    private final File _commits;
+
+    /** The trees folder where the directories of our commits are
+     *  stored. */
+    private final File _trees;
+
+    /** The branches folder where all our branches are stored. */
+    private final File _branches;
+
+    /** The file used for storing all of our staged changes, ready to be
+     *  committed. */
+    private final File _stage;
+
+    /** The file used for storing the name of our active branch. */
+    private final File _activeBranchFile;
+
+    /** The file used for storing our global log. */
+    private final File _globalLog;
+
+    /** The file used for storing our commit graph. */
+    private final File _commitGraphFile;
+
+    /** The file used for storing our message index. */
+    private final File _messageIndexFile;
+
+    /** The file used for storing the format version of our .gitlet
+     *  folder. */
+    private final File _version;
+
+    /** The file caching the blob ids of the files in our working
+     *  directory. */
+    private final File _indexFile;
+
+    /** The file that commands lock while they run. */
+    private final File _lockFile;
+
+    /** The branch that we are currently on. */
+    private Branch _activeBranch;
+
+    /** Our staging area. */
+    private Stage _stagingArea;
+
+    /** The commit graph used for history traversals. Loaded lazily. */
+    private CommitGraph _commitGraph;
+
+    /** The index of our commits by message. Loaded lazily. */
+    private MessageIndex _messageIndex;
+
+    /** The stat cache of our working directory. Loaded lazily. */
+    private Index _index;
+
+    /** While a batch runs, the metadata files written since its last
+     *  checkpoint, each with what computes its contents, or null for a
+     *  deleted file. Null when no batch is running. */
+    private LinkedHashMap<File, Supplier<byte[]>> _pendingWrites;
+
+    /** While a batch runs, the global log records appended since its
+     *  last checkpoint, oldest first. */
+    private ArrayList<String> _pendingLog;
+
+    /** While a batch runs, the lock it holds. */
+    private RepositoryLock _batchLock;
+
+    /** The outcomes of a merge that did not fail. */
+    public enum MergeResult {
+        /** The current branch now points at the given branch. */
+        FAST_FORWARD,
+        /** A merge commit was made. */
+        MERGED,
+        /** A merge commit was made, with conflicts left in some files. */
+        CONFLICT
+    }
+
+    /**
+     * The repository whose working directory is ROOT, with nothing
+     * loaded yet.
+     * @param root The top of the working directory.
+     */
+    private Repository(File root) {
+        _root = root.getAbsoluteFile();
+        _gitlet = Utils.join(_root, ".gitlet");
+        _blobs = Utils.join(_gitlet, "blobs");
+        _commits = Utils.join(_gitlet, "commits");
+        _trees = Utils.join(_gitlet, "trees");
+        _branches = Utils.join(_gitlet, "branches");
+        _stage = Utils.join(_gitlet, "stage");
+        _activeBranchFile = Utils.join(_gitlet, "active");
+        _globalLog = Utils.join(_gitlet, "globalLog.txt");
+        _commitGraphFile = Utils.join(_gitlet, "commit-graph");
+        _messageIndexFile = Utils.join(_gitlet, "message-index");
+        _version = Utils.join(_gitlet, "version");
+        _indexFile = Utils.join(_gitlet, "index");
+        _lockFile = Utils.join(_gitlet, "lock");
+    }
+
+    /**
+     * Opens the repository whose working directory is ROOT. Repositories
+     * made by older versions of gitlet are upgraded to the current format
+     * before anything is read.
+     * @param root The top of the working directory.
+     * @return The repository.
+     * @throws NotARepositoryException If ROOT holds no .gitlet folder.
+     */
+    public static Repository open(File root) {
+        Repository repository = new Repository(root);
+        repository.load();
+        return repository;
+    }
+
+    /**
+     * Reads our active branch and staging area, after making sure that
+     * a .gitlet folder exists in our root and upgrading it if needed.
+     */
+    private void load() {
+        checkExists();
+        if (Migration.version(this) != Migration.VERSION) {
+            try (RepositoryLock lock = RepositoryLock.exclusive(_lockFile)) {
+                Migration.upgrade(this);
+            }
+        }
+        try (RepositoryLock lock = RepositoryLock.shared(_lockFile)) {
+            readState();
+        }
+    }
+
+    /**
+     * Throws a NotARepositoryException unless our root holds a .gitlet
+     * folder.
+     */
+    private void checkExists() {
+        if (!_gitlet.isDirectory()) {
+            throw new NotARepositoryException(
+                    "Not in an initialized Gitlet directory.");
+        }
+    }
+
+    /**
+     * Reads our active branch and staging area from their files.
+     */
+    private void readState() {
+        String activeBranchName = Utils.readContentsAsString(
+                _activeBranchFile);
+        _activeBranch = Branch.decode(Utils.readContents(Utils.join(
+                _branches, activeBranchName)));
+        _stagingArea = Stage.decode(Utils.readContents(_stage));
+    }
+
+    /**
+     * This method implements the INIT command in gitlet. It creates a
+     * repository whose working directory is ROOT, holding only the
+     * initial commit on the master branch.
+     * @param root The top of the working directory.
+     * @return The new repository.
+     * @throws AlreadyExistsException If ROOT already holds a .gitlet
+     *         folder.
+     */
+    public static Repository init(File root) {
+        Repository repository = new Repository(root);
+        repository.initialize();
+        return repository;
+    }
+
+    /**
+     * A helper method for init that makes the basic files required for
+     * gitlet to work properly. If .gitlet was already initialized, it
+     * throws "A Gitlet version-control system already exists in the
+     * current directory." If there are any issues with creating these
+     * files, the mkdir() command will throw a SecurityException, which
+     * is turned into a GitletException.
+     */
+    private void initialize() {
+        try {
+            if (_gitlet.mkdir()) {
+                try (RepositoryLock lock = RepositoryLock.exclusive(
+                        _lockFile)) {
+                    createFiles();
+                }
+                return;
+            }
+        } catch (SecurityException e) {
+            throw Utils.error("There was an issue in Repository.initialize() "
+                    + "where the .gitlet file and its subdirectories could "
+                    + "be made.");
+        }
+        throw new AlreadyExistsException("A Gitlet version-control "
+                + "system already exists in the current directory.");
+    }
+
+    /**
+     * A helper method for initialize that fills the .gitlet folder it
+     * just made, while holding the lock, so that no other command sees
+     * it half made.
+     */
+    private void createFiles() {
+        try {
+            _blobs.mkdir();
+            _commits.mkdir();
+            _trees.mkdir();
+            _branches.mkdir();
+            _stage.createNewFile();
+            _activeBranchFile.createNewFile();
+            _globalLog.createNewFile();
+            Migration.writeVersion(this);
+        } catch (SecurityException e) {
+            throw Utils.error("There was an issue in Repository.initialize() "
+                    + "where the .gitlet file and its subdirectories could "
+                    + "be made.");
+        } catch (IOException e) {
+            throw Utils.error("There was an issue in Repository.initialize() "
+                    + "where the STAGE file could not be made.");
+        }
+        _stagingArea = new Stage();
+        _activeBranch = new Branch("master");
+        Commit initialCommit = new Commit(_trees);
+        _stagingArea.getBranches().add("master");
+        String initialCommitSHA1 = writeCommit(initialCommit);
+        _activeBranch.setHeadCommit(initialCommitSHA1);
+        getCommitGraph().add(initialCommitSHA1, initialCommit);
+        getMessageIndex().add(initialCommitSHA1,
+                initialCommit.getCommitMessage());
+        AppendLog.append(_globalLog,
+                initialCommit.logEntry(initialCommitSHA1));
+        Utils.replaceContents(Utils.join(_branches,
+                _activeBranch.getName()), _activeBranch.encode());
+        String currentBranchName = _activeBranch.getName();
+        Utils.replaceContents(_activeBranchFile, currentBranchName);
+        Utils.replaceContents(_stage, _stagingArea.encode());
+    }
+
+    /**
+     * This function implements the ADD command in gitlet. It looks at the
+     * previous commit and the current staging area to determine which files
+     * to add. If FILENAME is a directory, every file below it that is not
+     * ignored is added; when a watcher is running, only the files it saw
+     * change are read.
+     * @param fileName The name of the file we want to add to our staging area.
+     */
+    public void add(String fileName) {
+        try (RepositoryLock lock = lock(true)) {
+            /*
+             cases
+             check if the file is already in the staging area
+                 check if the file is identical to the one tracked
+                 by the current commit, if so, remove the file from
+                 the staging area
+             ------------------------------------------------------
+                 if the file is not identical to the one tracked
+                 by the current commit, create a new blob and
+                 overwrite the file in the staging area
+             ------------------------------------------------------
+             (case where the file is not in the staging area)
+             check if the file is identical to the one being tracked
+             by the current commit, if so, we do nothing, otherwise
+             we create a new blob and add it to the staging area
+             ------------------------------------------------------
+             remove the file from the removal area
+             rewrite the staging area back to its file
+            */
+            File file = new File(Utils.join(_root, fileName).getPath());
+            if (!file.exists()) {
+                throw new NotFoundException("File does not exist.");
+            }
+            String headCommitSHA1 = _activeBranch.getHeadCommit();
+            Commit headCommit = readCommit(headCommitSHA1);
+            Stage stage = _stagingArea;
+            if (file.isDirectory()) {
+                /* Flatten the head commit once, so that each file below is
+                 * compared through a map lookup rather than a tree walk. */
+                headCommit.getBlobs();
+                Watcher.Changes changes = Watcher.changes(_gitlet,
+                        getIndex().token());
+                for (Map.Entry<String, Boolean> path : WorkingTree.files(
+                        _root, fileName, getIndex(), changes)
+                        .entrySet()) {
+                    addFile(stage, headCommit, path.getKey(),
+                            Utils.join(_root, path.getKey()), path.getValue());
+                }
+            } else {
+                addFile(stage, headCommit, WorkingTree.normalize(fileName),
+                        file, true);
+            }
+            write(_stage, stage::encode);
+            saveIndex();
+        }
+    }
+
+    /**
+     * A helper method for add that stages the file FILE, whose path is
+     * FILENAME, in STAGE unless it matches HEADCOMMIT.
+     * @param stage The staging area.
+     * @param headCommit The head commit of the active branch.
+     * @param fileName The path of the file relative to the CWD.
+     * @param file The file.
+     * @param check False if a watcher saw no change to FILE since our
+     *              index last saw it.
+     */
+    private void addFile(Stage stage, Commit headCommit, String fileName,
+                         File file, boolean check) {
+        String cwdFileSHA1 = getIndex().store(fileName, file, check);
+        if (cwdFileSHA1.equals(headCommit.getBlob(fileName))) {
+            stage.getStagedFilesHashMap().remove(fileName);
+            stage.getStagedFiles().remove(fileName);
+        } else {
+            stage.getStagedFilesHashMap().put(fileName, cwdFileSHA1);
+            if (!stage.getBranches().contains(fileName)) {
+                stage.getStagedFiles().add(fileName);
+            }
+        }
+        stage.getRemovedFilesHashMap().remove(fileName);
+        stage.getRemovedFiles().remove(fileName);
+    }
+
+    /** This function implements the COMMIT command in gitlet. It creates a new
+     *  commit with the given message parameter. Then this commit is encoded
+     *  then our Utils.sha1 command is ran on the encoded bytes. Finally,
+     *  this information is written through ObjectStore to the appropriate
+     *  file which is located in the commits folder. The file name is the
+     *  SHA1 of our commit object.
+     *  The active branch's headCommit is set to be this new commit object,
+     *  and the staging area is cleared.
+     * @param message The message the user wants to associate with the commit.
+     * @return The SHA1 of the new commit.
+     */
+    public String commit(String message) {
+        try (RepositoryLock lock = lock(true)) {
+            String headCommitSHA1 = _activeBranch.getHeadCommit();
+            Commit newCommit = new Commit(message, _stagingArea,
+                    headCommitSHA1, readCommit(headCommitSHA1));
+            clearStagingArea();
+            String newCommitSHA1 = writeCommit(newCommit);
+            _activeBranch.setHeadCommit(newCommitSHA1);
+            getCommitGraph().add(newCommitSHA1, newCommit);
+            getMessageIndex().add(newCommitSHA1, message);
+            appendLog(newCommit.logEntry(newCommitSHA1));
+            write(Utils.join(_branches, getActiveBranch().getName()),
+                    _activeBranch::encode);
+            return newCommitSHA1;
+        }
+    }
+
+    /**
+     * This function implements the LOG command in gitlet. It walks the
+     * first parents of the head commit of the current active branch,
+     * newest first, through the commit graph, so that no commit is read
+     * unless the caller asks for it with readCommit.
+     * @return An iterator over the SHA1s of the commits of the log.
+     */
+    public Iterator<String> log() {
+        try (RepositoryLock lock = lock(false)) {
+            CommitGraph graph = getCommitGraph();
+            int head = graph.indexOf(_activeBranch.getHeadCommit());
+            return new Iterator<>() {
+                /** The index of the next commit, or CommitGraph.NONE. */
+                private int _next = head;
+
+                @Override
+                public boolean hasNext() {
+                    return _next != CommitGraph.NONE;
+                }
+
+                @Override
+                public String next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    String sha1 = graph.sha1(_next);
+                    _next = graph.parent1(_next);
+                    return sha1;
+                }
+            };
+        }
+    }
+
+    /**
+     * This method implements the CHECKOUT command in gitlet. It is the
+     * first of the three checkout methods. It takes a single input - the
+     * name of the file we are trying to revert from the head commit. This
+     * method will search for a file called FILENAME in the CWD. If such a
+     * file exists, the method will overwrite the file with the contents of
+     * the corresponding file in the head commit.
+     * @param fileName The name of the file we are trying to revert.
+     */
+    public void checkoutRevert(String fileName) {
+        try (RepositoryLock lock = lock(true)) {
+            Commit headCommit = readCommit(
+                    _activeBranch.getHeadCommit());
+            String blob = headCommit.getBlob(fileName);
+            if (blob == null) {
+                throw new NotFoundException("File does not exist in that "
+                        + "commit.");
+            }
+            restore(fileName, blob);
+            saveIndex();
+        }
+    }
+
+    /**
+     * This method implements the CHECKOUT command in gitlet. It is the
+     * second of the three checkout methods. It uses the commit passed in
+     * to find the file that we want to use to overwrite our file in our
+     * CWD.
+     * @param commitID The ID of the commit the user wants to find, which
+     *                 may be abbreviated.
+     * @param fileName The name of the file we want to overwrite in our CWD.
+     */
+    public void checkoutFromCommit(String commitID, String fileName) {
+        try (RepositoryLock lock = lock(true)) {
+            Commit pickedCommit = readCommit(resolveCommit(commitID));
+            String blob = pickedCommit.getBlob(fileName);
+            if (blob == null) {
+                throw new NotFoundException("File does not exist in that "
+                        + "commit.");
+            }
+            restore(fileName, blob);
+            saveIndex();
+        }
+    }
+
+    /**
+     * This method implements the CHECKOUT command in gitlet. It is the
+     * last of the three checkout methods. It uses the branch name passed
+     * in by the user to bring the chosen branch into the CWD.
+     * @param branchName A String object that is the name of the branch.
+     */
+    public void checkoutBranch(String branchName) {
+        try (RepositoryLock lock = lock(true)) {
+            Branch incomingBranch = readBranch(branchName);
+            if (incomingBranch == null) {
+                throw new NotFoundException("No such branch exists.");
+            }
+            if (branchName.equals(_activeBranch.getName())) {
+                throw Utils.error("No need to checkout the current branch.");
+            }
+            checkoutCommit(incomingBranch.getHeadCommit());
+            setActiveBranch(incomingBranch);
+            clearStagingArea();
+            write(_activeBranchFile, () -> incomingBranch.getName()
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * This method implements the STATUS command in gitlet. Before the
+     * staging area is printed, the working directory is compared with it
+     * and with the head commit to find the files that were modified but
+     * not staged and the files that are untracked.
+     * @return The staging area, to be printed with Stage.format.
+     */
+    public Stage status() {
+        try (RepositoryLock lock = lock(false)) {
+            Commit headCommit = readCommit(
+                    _activeBranch.getHeadCommit());
+            Index cache = getIndex();
+            Watcher.Changes changes = Watcher.changes(_gitlet, cache.token());
+            _stagingArea.scan(_root, headCommit.getBlobs(), cache,
+                    changes);
+            cache.setToken(changes.token());
+            saveIndex();
+            return _stagingArea;
+        }
+    }
+
+    /**
+     * This method implements the WATCH command in gitlet. It watches our
+     * CWD until it is killed, so that status and add only look at the
+     * files that changed; see Watcher.
+     */
+    public void watch() {
+        Watcher.run(_root, _gitlet);
+    }
+
+    /**
+     * This method implements the BRANCH command in gitlet. It creates a new
+     * branch, then adds the newly created branch into our staging area and
+     * writes the staging area into our stage file. It also points our new
+     * branch's head commit to our most recent commit.
+     * @param branchName This name is the name of the branch the user wants
+     *                   to make.
+     */
+    public void branch(String branchName) {
+        try (RepositoryLock lock = lock(true)) {
+            if (_stagingArea.getBranches().contains(branchName)) {
+                throw new AlreadyExistsException("A branch with that name "
+                        + "already exists.");
+            }
+            Branch newBranch = new Branch(branchName);
+            _stagingArea.getBranches().add(branchName);
+            newBranch.setHeadCommit(_activeBranch.getHeadCommit());
+            write(Utils.join(_branches, branchName), newBranch::encode);
+            write(_stage, _stagingArea::encode);
+        }
+    }
+
+    /**
+     * This method implements the GLOBAL-LOG command in gitlet. It streams
+     * the records stored in the globalLog.txt file in the .gitlet folder
+     * to OUT, newest first.
+     * @param out Where the records are printed.
+     */
+    public void globalLog(PrintStream out) {
+        try (RepositoryLock lock = lock(false)) {
+            if (_pendingLog != null) {
+                for (int i = _pendingLog.size() - 1; i >= 0; i -= 1) {
+                    out.print(_pendingLog.get(i));
+                }
+            }
+            AppendLog.printReversed(_globalLog, out);
+        }
+    }
+
+    /**
+     * This method implements the RM command in gitlet. It takes
+     * the file that needs to be removed. The method always tries
+     * to remove the file from the staging area. If the file exists
+     * in the most recent commit, the RM method will also delete the
+     * file from the CWD as well as stage it for removal.
+     * @param fileName The name of the file the user wants to delete.
+     */
+    public void rm(String fileName) {
+        try (RepositoryLock lock = lock(true)) {
+            Commit headCommit = readCommit(
+                    _activeBranch.getHeadCommit());
+            String headBlob = headCommit.getBlob(fileName);
+            if (!_stagingArea.getStagedFilesHashMap().containsKey(fileName)
+                && headBlob == null) {
+                throw Utils.error("No reason to remove the file.");
+            }
+            _stagingArea.getStagedFilesHashMap().remove(fileName);
+            _stagingArea.getStagedFiles().remove(fileName);
+            if (headBlob != null) {
+                WorkingTree.remove(_root, fileName);
+                getIndex().remove(fileName);
+                _stagingArea.getRemovedFilesHashMap().put(fileName, headBlob);
+                if (!_stagingArea.getStagedFiles().contains(fileName)) {
+                    _stagingArea.getRemovedFiles().add(fileName);
+                }
+            }
+            write(_stage, _stagingArea::encode);
+            saveIndex();
+        }
+    }
+
+    /**
+     * This method implements the RM-BRANCH command in gitlet. The
+     * branch file is deleted and the name of the branch is removed
+     * from our STAGINGAREA.
+     * @param branchName The name of the branch the user wants to remove.
+     */
+    public void rmBranch(String branchName) {
+        try (RepositoryLock lock = lock(true)) {
+            if (_activeBranch.getName().equals(branchName)) {
+                throw Utils.error("Cannot remove the current branch.");
+            }
+            File branchFile = Utils.join(_branches, branchName);
+            if (!delete(branchFile)) {
+                throw new NotFoundException("A branch with that name does not "
+                        + "exist.");
+            }
+            _stagingArea.getBranches().remove(branchName);
+            write(_stage, _stagingArea::encode);
+        }
+    }
+
+    /**
+     * This method implements the RESET commaind in gitlet. This
+     * method uses the checkoutCommit helper method below to revert
+     * the files in our CWD to the files tracked in the incoming
+     * commit. The staging area is cleared after we do so and the
+     * head of our activeBranch is set to the commit the user inputs.
+     * @param incomingCommitID The ID of the commit the user wants
+     *                         to set our activeBranch to, which may be
+     *                         abbreviated.
+     */
+    public void reset(String incomingCommitID) {
+        try (RepositoryLock lock = lock(true)) {
+            incomingCommitID = resolveCommit(incomingCommitID);
+            checkoutCommit(incomingCommitID);
+            _activeBranch.setHeadCommit(incomingCommitID);
+            write(Utils.join(_branches, _activeBranch.getName()),
+                    _activeBranch::encode);
+            clearStagingArea();
+        }
+    }
+
+    /**
+     * Returns the full SHA1 of the commit COMMITID, which may be
+     * abbreviated to any prefix that no other commit shares. Every
+     * command that takes a commit id looks it up here.
+     * @param commitID A full or abbreviated commit id.
+     * @return The full SHA1 of the commit.
+     */
+    private String resolveCommit(String commitID) {
+        String sha1 = getCommitGraph().resolve(commitID);
+        if (sha1 == null) {
+            throw new NotFoundException("No commit with that id exists.");
+        }
+        return sha1;
+    }
+
+    /**
+     * A helper method that replaces the files of the head commit of the
+     * active branch in our CWD by those of an incoming commit, after
+     * checking with wouldOverwrite that no untracked file is lost.
+     * Files tracked by the current commit but not by the incoming one
+     * are deleted, along with any directory they leave empty; untracked
+     * files are left alone. Only the files whose blobs differ between
+     * the two commits are written, in parallel; a file both commits hold
+     * the same version of is not even looked at, so any change made to
+     * it in the CWD carries over. This is meant to be called by reset
+     * and checkout [branchName] before they move any branch.
+     * @param incomingCommitID The ID of the incoming commit.
+     */
+    private void checkoutCommit(String incomingCommitID) {
+        TreeMap<String, String[]> changes = wouldOverwrite(incomingCommitID);
+        Index index = getIndex();
+        TreeMap<String, String> writes = new TreeMap<>();
+        for (Map.Entry<String, String[]> change : changes.entrySet()) {
+            if (change.getValue()[1] == null) {
+                WorkingTree.remove(_root, change.getKey());
+                index.remove(change.getKey());
+            } else {
+                writes.put(change.getKey(), change.getValue()[1]);
+            }
+        }
+        Blobs.restore(_blobs, _root, writes);
+        for (Map.Entry<String, String> file : writes.entrySet()) {
+            index.record(file.getKey(), Utils.join(_root, file.getKey()),
+                    file.getValue());
+        }
+        saveIndex();
+    }
+
+    /**
+     * A helper method that overwrites the file FILENAME in our CWD with
+     * the blob BLOB and records it in our index, so that it is not hashed
+     * again until it changes.
+     * @param fileName The path of the file relative to the CWD.
+     * @param blob The SHA1 of a blob.
+     */
+    private void restore(String fileName, String blob) {
+        File file = Utils.join(_root, fileName);
+        Blobs.restore(_blobs, blob, file);
+        getIndex().record(fileName, file, blob);
+    }
+
+    /**
+     * A helper method that clears the staging area and writes it back to the
+     * STAGE file.
+     */
+    private void clearStagingArea() {
+        Stage stage = getStagingArea();
+        stage.getStagedFilesHashMap().clear();
+        stage.getRemovedFilesHashMap().clear();
+        stage.getStagedFiles().clear();
+        stage.getRemovedFiles().clear();
+        stage.getModifiedNotStagedFiles().clear();
+        stage.getUntrackedFiles().clear();
+        write(_stage, stage::encode);
+    }
+
+    /**
+     * A helper method that checks whether or not an incoming commit will
+     * overwrite/delete existing files. This is meant to be called by
+     * reset and checkout [branchName].
+     * @param incomingCommitID The ID of the incoming commit.
+     * @return The changes from the head commit to the incoming one, as
+     *         computed by Tree.diff.
+     */
+    private TreeMap<String, String[]> wouldOverwrite(
+            String incomingCommitID) {
+        Commit currentCommit = readCommit(
+                _activeBranch.getHeadCommit());
+        Commit incomingCommit = readCommit(incomingCommitID);
+        TreeMap<String, String[]> changes = Tree.diff(_trees,
+                currentCommit.getTree(), incomingCommit.getTree());
+        for (Map.Entry<String, String[]> change : changes.entrySet()) {
+            String fileName = change.getKey();
+            String incomingBlob = change.getValue()[1];
+            File file = Utils.join(_root, fileName);
+            if (change.getValue()[0] == null && incomingBlob != null
+                    && file.isFile()
+                    && !incomingBlob.equals(getIndex().hash(fileName, file))) {
+                throw new UntrackedFileException("There is an untracked "
+                        + "file in the way; delete it, or add and commit it "
+                        + "first.");
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * This method implements the FIND commaind in gitlet. It looks the
+     * user's message up in our message index, so no commit is read, and
+     * returns all the commit SHA1's associated with it.
+     * @param message The user's message.
+     * @return The SHA1s of the commits with that message.
+     */
+    public List<String> find(String message) {
+        try (RepositoryLock lock = lock(false)) {
+            List<String> output = getMessageIndex().find(message);
+            if (output.size() == 0) {
+                throw new NotFoundException("Found no commit with that "
+                        + "message.");
+            }
+            return output;
+        }
+    }
+
+    /**
+     * Runs SEARCH over every commit of this repository, in parallel,
+     * passing the SHA1 of each match to OUT as soon as it is found.
+     * @param search What to look for.
+     * @param out Receives the SHA1 of each match, one at a time.
+     */
+    public void search(Search search, Consumer<String> out) {
+        try (RepositoryLock lock = lock(false)) {
+            if (search.run(_commits, getCommitGraph(),
+                    ForkJoinPool.commonPool(), out) == 0) {
+                throw new NotFoundException("Found no commit with that "
+                        + "message.");
+            }
+        }
+    }
+
+    /**
+     * Rebuilds our message index from the commits in our COMMITS folder,
+     * in case it no longer agrees with them.
+     */
+    public void rebuildMessageIndex() {
+        try (RepositoryLock lock = lock(true)) {
+            _messageIndex = MessageIndex.rebuild(_messageIndexFile,
+                    _commits);
+        }
+    }
+
+    /**
+     * Compares our message index with the commits in our COMMITS folder.
+     * @return A description of each disagreement, empty if there is none.
+     */
+    public List<String> checkMessageIndex() {
+        try (RepositoryLock lock = lock(false)) {
+            return getMessageIndex().check(_commits);
+        }
+    }
+
+    /**
+     * This method implements the REPACK command in gitlet. It moves the
+     * loose blobs and commits into packs, so that the object folders stay
+     * small however long our history grows. Blobs holding successive
+     * versions of the same file are stored as deltas.
+     */
+    public void repack() {
+        try (RepositoryLock lock = lock(true)) {
+            ObjectStore.repack(_blobs, fileHistories());
+            ObjectStore.repack(_trees, List.of());
+            ObjectStore.repack(_commits, List.of());
+        }
+    }
+
+    /**
+     * A helper method for repack that lists the versions of every file
+     * ever committed, walking the commit graph parents first. Trees
+     * shared with earlier commits are only read once.
+     * @return The blob ids each file name has been committed with, in
+     *         the order they first appeared.
+     */
+    private List<List<String>> fileHistories() {
+        CommitGraph graph = getCommitGraph();
+        TreeMap<String, LinkedHashSet<String>> histories = new TreeMap<>();
+        HashSet<String> seen = new HashSet<>();
+        for (int i = 0; i < graph.size(); i += 1) {
+            Commit commit = readCommit(graph.sha1(i));
+            Tree.walk(_trees, commit.getTree(), seen, (fileName, blob) ->
+                    histories.computeIfAbsent(fileName,
+                            k -> new LinkedHashSet<>()).add(blob));
+        }
+        ArrayList<List<String>> result = new ArrayList<>();
+        for (LinkedHashSet<String> history : histories.values()) {
+            result.add(new ArrayList<>(history));
+        }
+        return result;
+    }
+
+    /**
+     * The main merge function that is called from our main class. Uses many
+     * helper functions to merge the branch BRANCH2STRING into our current
+     * branch.
+     * @param branch2String The String representing the incoming branch.
+     * @return Whether the current branch was fast-forwarded, or merged
+     *         with or without conflicts.
+     */
+    public MergeResult merge(String branch2String) {
+        try (RepositoryLock lock = lock(true)) {
+            String branch1String = _activeBranch.getName();
+            if (!_stagingArea.getBranches().contains(branch2String)) {
+                throw new NotFoundException("A branch with that name does not "
+                        + "exist.");
+            }
+            if (branch1String.equals(branch2String)) {
+                throw Utils.error("Cannot merge a branch with itself.");
+            }
+            String commonCommitSHA1 = getSplit(branch1String, branch2String);
+            if (commonCommitSHA1 == null) {
+                throw Utils.error("Something is wrong in the getSplit "
+                        + "function.");
+            }
+            Commit commonCommit = readCommit(commonCommitSHA1);
+            Branch branch1 = readBranch(branch1String);
+            Branch branch2 = readBranch(branch2String);
+            String branch1SHA1 = branch1.getHeadCommit();
+            String branch2SHA1 = branch2.getHeadCommit();
+            Commit branch1Head = readCommit(branch1SHA1);
+            Commit branch2Head = readCommit(branch2SHA1);
+            if (_stagingArea.getStagedFiles().size() != 0
+                    || _stagingArea.getRemovedFiles().size() != 0) {
+                throw Utils.error("You have uncommitted changes.");
+            }
+            wouldOverwrite(branch2.getHeadCommit());
+            if (commonCommitSHA1.equals(branch1.getHeadCommit())) {
+                checkoutBranch(branch2String);
+                return MergeResult.FAST_FORWARD;
+            }
+            if (commonCommitSHA1.equals(branch2.getHeadCommit())) {
+                throw Utils.error("Given branch is an ancestor of "
+                        + "the current branch.");
+            }
+            boolean mergeConflict = mergeInitialCases(branch1Head,
+                    branch2Head, commonCommit, branch2SHA1);
+            write(_stage, _stagingArea::encode);
+            commitMerge(branch1String, branch2String, branch2SHA1);
+            saveIndex();
+            return mergeConflict ? MergeResult.CONFLICT : MergeResult.MERGED;
+        }
+    }
+
+    /**
+     * This method runs the initial cases in merge to shorten the
+     * actual merge method. Only the files that changed between the split
+     * point and either head are looked at, and directories that did not
+     * change on either side are skipped entirely.
+     * @param branch1Head The Commit located at the head of branch1.
+     * @param branch2Head The Commit located at the head of branch2.
+     * @param commonCommit The Commit shared by branch1 and branch2.
+     * @param branch2SHA1 The SHA1 of the branch2's head commit.
+     * @return True if there was a merge error, false otherwise.
+     */
+    private boolean mergeInitialCases(Commit branch1Head,
+                                      Commit branch2Head,
+                                      Commit commonCommit,
+                                      String branch2SHA1) {
+        TreeMap<String, String[]> headChanges = Tree.diff(_trees,
+                commonCommit.getTree(), branch1Head.getTree());
+        TreeMap<String, String[]> otherChanges = Tree.diff(_trees,
+                commonCommit.getTree(), branch2Head.getTree());
+        TreeSet<String> changedFiles = new TreeSet<>(headChanges.keySet());
+        changedFiles.addAll(otherChanges.keySet());
+        boolean mergeConflict = false;
+        for (String fileName : changedFiles) {
+            String[] headChange = headChanges.get(fileName);
+            String[] otherChange = otherChanges.get(fileName);
+            String split = headChange != null ? headChange[0]
+                    : otherChange[0];
+            String head = headChange != null ? headChange[1] : split;
+            String other = otherChange != null ? otherChange[1] : split;
+            if (head != null && other != null && split != null) {
+                caseA(fileName, head, other, split);
+                mergeConflict = caseD(fileName, head, other, split)
+                        || mergeConflict;
+            } else if (head == null && other != null && split == null) {
+                caseF(fileName, other);
+            } else if (head != null && other == null && split != null) {
+                mergeConflict = caseD(fileName, head, other, split)
+                        || mergeConflict;
+                caseG(fileName, head, split);
+            } else if (head == null && other != null && split != null) {
+                mergeConflict = caseD(fileName, head, other, split)
+                        || mergeConflict;
+            } else if (head != null && other != null && split == null) {
+                mergeConflict = caseD(fileName, head, other, split)
+                        || mergeConflict;
+            }
+        }
+        return mergeConflict;
+    }
+
+    /**
+     * A commit method used by merge that includes a tailored commit message.
+     * @param branch1String The string representing the name of our current
+     *                      branch.
+     * @param branch2String The string representing the name of our incoming
+     *                      branch.
+     * @param commit2Sha1 The string representing the SHA1 of the commit
+     *                    at the head of our incoming branch.
+     */
+    private void commitMerge(String branch1String,
+                             String branch2String,
+                             String commit2Sha1) {
+        String headCommitSHA1 = _activeBranch.getHeadCommit();
+        Commit newCommit = new Commit("Merged " + branch2String + " into "
+                + branch1String + ".", _stagingArea, headCommitSHA1,
+                readCommit(headCommitSHA1));
+        clearStagingArea();
+        newCommit.setSecondaryCommit(commit2Sha1);
+        String newCommitSHA1 = writeCommit(newCommit);
+        _activeBranch.setHeadCommit(newCommitSHA1);
+        getCommitGraph().add(newCommitSHA1, newCommit);
+        getMessageIndex().add(newCommitSHA1, newCommit.getCommitMessage());
+        appendLog(newCommit.logEntry(newCommitSHA1));
+        write(Utils.join(_branches, getActiveBranch().getName()),
+                _activeBranch::encode);
+    }
+
+    /**
+     * This method handles case A where a file exists in HEAD, other, and split
+     * and the file was modified in other since the split point but not
+     * modified in HEAD. In this case, the file is checked out from the other's
+     * commit and the changes are staged.
+     * @param fileName The name of the file we are working with.
+     * @param head The blob of the file in the head commit.
+     * @param other The blob of the file in the incoming commit.
+     * @param split The blob of the file in the split point.
+     */
+    private void caseA(String fileName, String head, String other,
+                       String split) {
+        if (!other.equals(split) && head.equals(split)) {
+            restore(fileName, other);
+            _stagingArea.getStagedFiles().add(fileName);
+            _stagingArea.getStagedFilesHashMap().put(fileName, other);
+        }
+    }
+
+    /**
+     * This method handles case D where there is a merge error. This occurs
+     * when files tracked in both the HEAD and other commit have differing
+     * content. We overwrite the current version of the file in the CWD
+     * with a representation containing both sets of file contents. Then
+     * we stage this file.
+     * @param fileName The name of the file we are working with.
+     * @param head The blob of the file in the head commit, or null.
+     * @param other The blob of the file in the incoming commit, or null.
+     * @param split The blob of the file in the split point, or null.
+     * @return Returns true if there was indeed a merge error, otherwise false.
+     */
+    private boolean caseD(String fileName, String head, String other,
+                          String split) {
+        boolean write = false;
+        byte[] newContent = null;
+        if (head == null && !other.equals(split)) {
+            byte[] contentFromOtherBlob = Blobs.read(_blobs, other);
+            newContent = Blobs.concat("<<<<<<< HEAD\n" + "=======\n",
+                    contentFromOtherBlob, ">>>>>>>\n");
+            write = true;
+        } else if (other == null && !head.equals(split)) {
+            byte[] contentFromHeadBlob = Blobs.read(_blobs, head);
+            newContent = Blobs.concat("<<<<<<< HEAD\n", contentFromHeadBlob,
+                    "=======\n" + ">>>>>>>\n");
+            write = true;
+        } else if (head != null && other != null && !head.equals(other)
+                && !head.equals(split) && !other.equals(split)) {
+            byte[] contentFromHeadBlob = Blobs.read(_blobs, head);
+            byte[] contentFromOtherBlob = Blobs.read(_blobs, other);
+            newContent = Blobs.concat("<<<<<<< HEAD\n", contentFromHeadBlob,
+                    "=======\n", contentFromOtherBlob, ">>>>>>>\n");
+            write = true;
+        }
+        if (write) {
+            String newBlobName = Blobs.store(_blobs, newContent);
+            File file = Utils.join(_root, fileName);
+            file.getParentFile().mkdirs();
+            Utils.writeContents(file, newContent);
+            _stagingArea.getStagedFiles().add(fileName);
+            _stagingArea.getStagedFilesHashMap().put(fileName, newBlobName);
+        }
+        return write;
+    }
+
+    /**
+     * This method handles case F which occurs when a file only exists in the
+     * other branch. In this case, we will checkout the file from the other
+     * branch's commit and write it into our CWD and stage it for addition.
+     * @param fileName The file we are working with.
+     * @param other The blob of the file in the incoming commit.
+     */
+    private void caseF(String fileName, String other) {
+        restore(fileName, other);
+        _stagingArea.getStagedFiles().add(fileName);
+        _stagingArea.getStagedFilesHashMap().put(fileName, other);
+    }
+
+    /**
+     * This method handles case G which occurs when a file exists in HEAD and
+     * split but not in other. In this case, we remove the file from the CWD,
+     * along with any directory it leaves empty, and stage it for removal.
+     * @param fileName The file we are working with.
+     * @param head The blob of the file in the head commit.
+     * @param split The blob of the file in the split point.
+     */
+    private void caseG(String fileName, String head, String split) {
+        if (head.equals(split)) {
+            WorkingTree.remove(_root, fileName);
+            getIndex().remove(fileName);
+            _stagingArea.getRemovedFiles().add(fileName);
+            _stagingArea.getRemovedFilesHashMap().put(fileName, head);
+        }
+    }
+
+    /**
+     * Our function for getting the split point of two branches. See
+     * MergeBase for how we choose between several equally good split
+     * points in criss-cross histories.
+     * @param branch1String The name of the current branch.
+     * @param branch2String The name of the incoming branch.
+     * @return The name of the split commit, or null if the branches share
+     *         no history.
+     */
+    private String getSplit(String branch1String,
+                            String branch2String) {
+        CommitGraph graph = getCommitGraph();
+        int branch1Head = graph.indexOf(readBranch(branch1String)
+                .getHeadCommit());
+        int branch2Head = graph.indexOf(readBranch(branch2String)
+                .getHeadCommit());
+        int split = MergeBase.best(graph, branch1Head, branch2Head);
+        if (split == CommitGraph.NONE) {
+            return null;
+        }
+        return graph.sha1(split);
+    }
+
+    /**
+     * Returns the lock of this repository, exclusive if EXCLUSIVE. Unless
+     * this thread already held it, we refresh what we loaded, since
+     * another process or thread may have changed the repository since.
+     * @param exclusive True for a command that changes the repository.
+     * @return The lock, to be closed when the command is done.
+     */
+    private RepositoryLock lock(boolean exclusive) {
+        RepositoryLock lock = exclusive ? RepositoryLock.exclusive(_lockFile)
+                : RepositoryLock.shared(_lockFile);
+        if (lock.isOutermost()) {
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                lock.close();
+                throw e;
+            }
+        }
+        return lock;
+    }
+
+    /**
+     * Runs at the start of each command, once it holds our lock. Reads
+     * our active branch and staging area again, forgets whatever other
+     * processes changed since the last command, and keeps the commit
+     * graph, the index and the packs when they are still current.
+     */
+    private void refresh() {
+        checkExists();
+        if (_commitGraph != null
+                && (!_commitGraphFile.exists() || !_commitGraph.refresh())) {
+            _commitGraph = null;
+        }
+        if (_messageIndex != null && (!_messageIndexFile.exists()
+                || !_messageIndex.refresh())) {
+            _messageIndex = null;
+        }
+        if (_index != null && !_index.isCurrent()) {
+            _index = null;
+        }
+        ObjectStore.refresh();
+        readState();
+    }
+
+    /**
+     * A getter method for the commit graph, loading it the first time
+     * it is needed.
+     * @return The commit graph of this repository.
+     */
+    CommitGraph getCommitGraph() {
+        if (_commitGraph == null) {
+            _commitGraph = CommitGraph.load(_commitGraphFile, _commits);
+        }
+        return _commitGraph;
+    }
+
+    /**
+     * A getter method for the message index, loading it the first time
+     * it is needed.
+     * @return The message index of this repository.
+     */
+    MessageIndex getMessageIndex() {
+        if (_messageIndex == null) {
+            _messageIndex = MessageIndex.load(_messageIndexFile, _commits);
+        }
+        return _messageIndex;
+    }
+
+    /**
+     * A getter method for the stat cache of our CWD, loading it the first
+     * time it is needed. Commands that use it save it before they return.
+     * @return The index of this repository.
+     */
+    Index getIndex() {
+        if (_index == null) {
+            _index = Index.load(_indexFile, _blobs);
+        }
+        return _index;
+    }
+
+    /**
+     * Starts a batch: until it ends, the stage, branch, active branch,
+     * global log and index writes of each command are held in memory
+     * and only reach .gitlet at checkpoints. The batch holds our lock
+     * exclusively until it ends, so no other process sees the state
+     * between two checkpoints or changes what we hold.
+     */
+    void startBatch() {
+        _batchLock = lock(true);
+        _pendingWrites = new LinkedHashMap<>();
+        _pendingLog = new ArrayList<>();
+    }
+
+    /**
+     * Writes everything held back since the last checkpoint of the
+     * running batch, if any.
+     */
+    void checkpoint() {
+        if (_pendingWrites == null) {
+            return;
+        }
+        AppendLog.append(_globalLog, _pendingLog);
+        _pendingLog.clear();
+        for (Map.Entry<File, Supplier<byte[]>> write
+                : _pendingWrites.entrySet()) {
+            if (write.getValue() == null) {
+                write.getKey().delete();
+            } else {
+                Utils.replaceContents(write.getKey(),
+                        write.getValue().get());
+            }
+        }
+        _pendingWrites.clear();
+        if (_index != null) {
+            _index.save();
+        }
+    }
+
+    /**
+     * Ends the running batch after a last checkpoint.
+     */
+    void endBatch() {
+        try {
+            checkpoint();
+        } finally {
+            _pendingWrites = null;
+            _pendingLog = null;
+            _batchLock.close();
+            _batchLock = null;
+        }
+    }
+
+    /**
+     * Writes the bytes CONTENTS supplies to the metadata file FILE, or
+     * holds them back until the next checkpoint while a batch runs, so
+     * that an object written by many commands is only encoded once.
+     * @param file A file in .gitlet.
+     * @param contents Supplies its new contents.
+     */
+    private void write(File file, Supplier<byte[]> contents) {
+        if (_pendingWrites == null) {
+            Utils.replaceContents(file, contents.get());
+        } else {
+            _pendingWrites.put(file, contents);
+        }
+    }
+
+    /**
+     * Deletes the metadata file FILE, or holds the deletion back until
+     * the next checkpoint while a batch runs.
+     * @param file A file in .gitlet.
+     * @return True if FILE existed.
+     */
+    private boolean delete(File file) {
+        if (_pendingWrites == null) {
+            return file.delete();
+        }
+        boolean existed = _pendingWrites.containsKey(file)
+                ? _pendingWrites.get(file) != null : file.exists();
+        _pendingWrites.put(file, null);
+        return existed;
+    }
+
+    /**
+     * Returns the branch named BRANCHNAME, as written by the running
+     * batch if it wrote it.
+     * @param branchName The name of a branch.
+     * @return The branch, or null if there is no such branch.
+     */
+    private Branch readBranch(String branchName) {
+        File file = Utils.join(_branches, branchName);
+        if (_pendingWrites != null && _pendingWrites.containsKey(file)) {
+            Supplier<byte[]> contents = _pendingWrites.get(file);
+            return contents == null ? null : Branch.decode(contents.get());
+        }
+        if (!file.isFile()) {
+            return null;
+        }
+        return Branch.decode(Utils.readContents(file));
+    }
+
+    /**
+     * Appends RECORD to the global log, or holds it back until the next
+     * checkpoint while a batch runs.
+     * @param record The log entry of a commit.
+     */
+    private void appendLog(String record) {
+        if (_pendingLog == null) {
+            AppendLog.append(_globalLog, record);
+        } else {
+            _pendingLog.add(record);
+        }
+    }
+
+    /**
+     * Saves our index, unless a batch runs, in which case its next
+     * checkpoint does.
+     */
+    private void saveIndex() {
+        if (_pendingWrites == null) {
+            getIndex().save();
+        }
+    }
+
+    /**
+     * A getter method for the currentBranch instance variable.
+     * @return The current branch the user is using.
+     */
+    public Branch getActiveBranch() {
+        return _activeBranch;
+    }
+
+    /**
+     * A setter method for the currentBranch instance variable.
+     * @param branch The branch that we want to set the current branch to.
+     */
+    private void setActiveBranch(Branch branch) {
+        _activeBranch = branch;
+    }
+
+    /**
+     * A getter method for the stagingArea instance variable.
+     * @return The staging area.
+     */
+    public Stage getStagingArea() {
+        return _stagingArea;
+    }
+
+    /**
+     * Returns the commit SHA1 of this repository, with its trees read
+     * from our trees folder.
+     * @param sha1 The full SHA1 of a commit.
+     * @return The commit.
+     */
+    public Commit readCommit(String sha1) {
+        Commit commit = ObjectStore.readCommit(_commits, sha1);
+        commit.setTrees(_trees);
+        return commit;
+    }
+
+    /**
+     * Returns the cache readCommit goes through, which counts its hits
+     * and misses.
+     * @return The cache of our decoded commits.
+     */
+    ObjectCache<Commit> commitCache() {
+        return ObjectStore.commitCache(_commits);
+    }
+
+    /**
+     * Returns the cache every read of our trees goes through, which
+     * counts its hits and misses.
+     * @return The cache of our decoded trees.
+     */
+    ObjectCache<Tree> treeCache() {
+        return Tree.cache(_trees);
+    }
+
+    /**
+     * Stores COMMIT in our commits folder.
+     * @param commit A commit.
+     * @return The SHA1 of COMMIT.
+     */
+    String writeCommit(Commit commit) {
+        return ObjectStore.writeCommit(_commits, commit);
+    }
+
+    /**
+     * A getter method for the top of our working directory.
+     * @return The root of this repository.
+     */
+    File root() {
+        return _root;
+    }
+
+    /**
+     * A getter method for our blobs folder.
+     * @return The folder holding our blobs.
+     */
+    File blobs() {
+        return _blobs;
+    }
+
+    /**
+     * A getter method for our commits folder.
+     * @return The folder holding our commits.
+     */
+    File commits() {
+        return _commits;
+    }
+
+    /**
+     * A getter method for our trees folder.
+     * @return The folder holding our trees.
+     */
+    File trees() {
+        return _trees;
+    }
+
+    /**
+     * A getter method for our branches folder.
+     * @return The folder holding our branches.
+     */
+    File branches() {
+        return _branches;
+    }
+
+    /**
+     * A getter method for the file holding our staging area.
+     * @return The stage file.
+     */
+    File stageFile() {
+        return _stage;
+    }
+
+    /**
+     * A getter method for the file holding our global log.
+     * @return The global log file.
+     */
+    File globalLogFile() {
+        return _globalLog;
+    }
+
+    /**
+     * A getter method for the file naming our active branch.
+     * @return The active branch file.
+     */
+    File activeBranchFile() {
+        return _activeBranchFile;
+    }
+
+    /**
+     * A getter method for the file holding our format version.
+     * @return The version file.
+     */
+    File versionFile() {
+        return _version;
+    }
+}
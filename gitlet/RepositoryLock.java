@@ -0,0 +1,215 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A lock on a repository, held on its .gitlet/lock file. Commands that
+ * only read the repository hold a shared lock, so that they may run side
+ * by side; commands that change the stage or a branch hold an exclusive
+ * one, so that they read, change and write the stage without another
+ * command changing it in between.
+ *
+ * The lock is taken with FileChannel.lock, which excludes other
+ * processes. Since a process can only hold one lock on a file, the
+ * threads of this process first take a read-write lock kept for each
+ * lock file, and the file itself is locked by the first thread to hold
+ * it and released by the last. A thread that already holds the lock may
+ * take it again, except that a shared lock cannot be made exclusive.
+ * @author Wilson Chu
+ */
+class RepositoryLock implements AutoCloseable {
+
+    /** The state of each lock file used by this process, by path. */
+    private static final ConcurrentHashMap<File, State> STATES =
+            new ConcurrentHashMap<>();
+
+    /** The state of THIS lock's file. */
+    private final State _state;
+
+    /** True if THIS lock is exclusive. */
+    private final boolean _exclusive;
+
+    /** True if this thread held no lock on the file before THIS one. */
+    private final boolean _outermost;
+
+    /** False once THIS lock was released. */
+    private boolean _held;
+
+    /**
+     * Takes the lock of FILE, waiting for any other holder that stands in
+     * the way, exclusively if EXCLUSIVE is true.
+     * @param file The lock file.
+     * @param exclusive True for an exclusive lock, false for a shared one.
+     */
+    private RepositoryLock(File file, boolean exclusive) {
+        _state = STATES.computeIfAbsent(canonical(file), State::new);
+        _exclusive = exclusive;
+        ReentrantReadWriteLock threads = _state._threads;
+        boolean writing = threads.isWriteLockedByCurrentThread();
+        if (exclusive && !writing && threads.getReadHoldCount() > 0) {
+            throw new IllegalStateException("A shared repository lock "
+                    + "cannot be made exclusive.");
+        }
+        _outermost = !writing && threads.getReadHoldCount() == 0;
+        if (exclusive) {
+            threads.writeLock().lock();
+        } else {
+            threads.readLock().lock();
+        }
+        _held = true;
+        if (_outermost) {
+            try {
+                _state.acquire(exclusive);
+            } catch (RuntimeException e) {
+                unlockThreads();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Returns a shared lock on FILE.
+     * @param file The lock file.
+     * @return The lock, to be closed when the command is done.
+     */
+    static RepositoryLock shared(File file) {
+        return new RepositoryLock(file, false);
+    }
+
+    /**
+     * Returns an exclusive lock on FILE.
+     * @param file The lock file.
+     * @return The lock, to be closed when the command is done.
+     */
+    static RepositoryLock exclusive(File file) {
+        return new RepositoryLock(file, true);
+    }
+
+    /**
+     * Returns whether this thread held no lock on our file before THIS
+     * one, so that whatever it read of the repository may be stale.
+     * @return True if THIS lock is not nested in another.
+     */
+    boolean isOutermost() {
+        return _outermost;
+    }
+
+    /** Releases THIS lock; does nothing if it was already released. */
+    @Override
+    public void close() {
+        if (!_held) {
+            return;
+        }
+        _held = false;
+        try {
+            if (_outermost) {
+                _state.release(_exclusive);
+            }
+        } finally {
+            unlockThreads();
+        }
+    }
+
+    /** Releases our hold on the read-write lock of our file. */
+    private void unlockThreads() {
+        if (_exclusive) {
+            _state._threads.writeLock().unlock();
+        } else {
+            _state._threads.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the canonical form of FILE, so that every path to the same
+     * lock file shares one state.
+     * @param file A lock file.
+     * @return Its canonical path, or its absolute one if that fails.
+     */
+    private static File canonical(File file) {
+        try {
+            return file.getCanonicalFile();
+        } catch (IOException e) {
+            return file.getAbsoluteFile();
+        }
+    }
+
+    /** The threads holding a lock file and the lock held on the file. */
+    private static class State {
+
+        /** The file this state is for. */
+        private final File _file;
+
+        /** Orders the threads of this process that want the lock. */
+        private final ReentrantReadWriteLock _threads =
+                new ReentrantReadWriteLock();
+
+        /** The number of threads holding a shared lock. */
+        private int _readers;
+
+        /** The channel holding the lock on _file, or null. */
+        private FileChannel _channel;
+
+        /**
+         * The state of the lock file FILE.
+         * @param file A lock file.
+         */
+        State(File file) {
+            _file = file;
+        }
+
+        /**
+         * Locks our file for a thread that just took _threads,
+         * exclusively if EXCLUSIVE, unless another shared holder already
+         * did.
+         * @param exclusive True for an exclusive lock.
+         */
+        synchronized void acquire(boolean exclusive) {
+            if (!exclusive && _readers++ > 0) {
+                return;
+            }
+            try {
+                _channel = FileChannel.open(_file.toPath(),
+                        StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+                _channel.lock(0, Long.MAX_VALUE, !exclusive);
+            } catch (IOException e) {
+                if (!exclusive) {
+                    _readers -= 1;
+                }
+                closeChannel();
+                throw Utils.error("Could not lock the repository.");
+            }
+        }
+
+        /**
+         * Unlocks our file for a thread about to release _threads, unless
+         * another shared holder still needs it.
+         * @param exclusive True if the thread held an exclusive lock.
+         */
+        synchronized void release(boolean exclusive) {
+            if (!exclusive && --_readers > 0) {
+                return;
+            }
+            closeChannel();
+        }
+
+        /** Closes _channel, which releases its lock, ignoring errors. */
+        private void closeChannel() {
+            if (_channel == null) {
+                return;
+            }
+            try {
+                _channel.close();
+            } catch (IOException e) {
+                return;
+            } finally {
+                _channel = null;
+            }
+        }
+    }
+}
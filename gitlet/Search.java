@@ -0,0 +1,245 @@
+package gitlet;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A search of every commit by message and date, as run by
+ * find --grep REGEX --since DATE --until DATE --max N, where every
+ * option may be left out. Commits are split into shards searched by the
+ * tasks of a fork/join pool. The dates come from the commit graph and
+ * only the message of a commit is decoded, so a search by date alone
+ * reads no commit at all. Matches are reported as soon as they are
+ * found, in no particular order, and the search stops once it found as
+ * many as it was allowed to.
+ * @author Wilson Chu
+ */
+public class Search {
+
+    /** The names of the options of find. */
+    private static final List<String> OPTIONS =
+            List.of("--grep", "--since", "--until", "--max");
+
+    /** The most commits a task searches without splitting them. */
+    private static final int SHARD = 256;
+
+    /** What a message must contain, or null to accept any message. */
+    private final Pattern _grep;
+
+    /** The earliest commit time accepted, in milliseconds. */
+    private final long _since;
+
+    /** The latest commit time accepted, in milliseconds. */
+    private final long _until;
+
+    /** The most matches reported. */
+    private final int _max;
+
+    /**
+     * A search for the commits whose message contains a match of GREP
+     * and which were made between SINCE and UNTIL, reporting at most
+     * MAX of them.
+     * @param grep A pattern, or null to accept any message.
+     * @param since The earliest commit time, in milliseconds.
+     * @param until The latest commit time, in milliseconds.
+     * @param max The most matches to report.
+     */
+    public Search(Pattern grep, long since, long until, int max) {
+        _grep = grep;
+        _since = since;
+        _until = until;
+        _max = max;
+    }
+
+    /**
+     * Returns the search described by OPTIONS, a list of option names,
+     * each followed by its value: --grep and a regular expression,
+     * --since and --until and a date such as 2024-05-31, which are
+     * inclusive, or --max and a positive number.
+     * @param options The options of find.
+     * @return The search.
+     */
+    public static Search parse(String... options) {
+        if (options.length == 0 || options.length % 2 != 0) {
+            Main.incorrectOperandsError();
+        }
+        Pattern grep = null;
+        long since = Long.MIN_VALUE;
+        long until = Long.MAX_VALUE;
+        int max = Integer.MAX_VALUE;
+        for (int i = 0; i < options.length; i += 2) {
+            String value = options[i + 1];
+            switch (options[i]) {
+            case "--grep":
+                try {
+                    grep = Pattern.compile(value);
+                } catch (PatternSyntaxException e) {
+                    throw Utils.error("Invalid pattern %s.", value);
+                }
+                break;
+            case "--since":
+                since = startOfDay(date(value));
+                break;
+            case "--until":
+                until = startOfDay(date(value).plusDays(1)) - 1;
+                break;
+            case "--max":
+                try {
+                    max = Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                    max = 0;
+                }
+                if (max <= 0) {
+                    throw Utils.error("Invalid count %s.", value);
+                }
+                break;
+            default:
+                Main.incorrectOperandsError();
+            }
+        }
+        return new Search(grep, since, until, max);
+    }
+
+    /**
+     * Returns whether OPERAND names one of the options parse accepts.
+     * @param operand An operand of find.
+     * @return True if OPERAND is an option.
+     */
+    static boolean isOption(String operand) {
+        return OPTIONS.contains(operand);
+    }
+
+    /**
+     * Searches the commits of GRAPH, stored in COMMITSDIR, in the tasks
+     * of POOL, passing the SHA1 of each match to OUT as it is found. OUT
+     * is called from the threads of POOL, but for one match at a time.
+     * @param commitsDir The directory holding our encoded commits.
+     * @param graph The commit graph of the commits.
+     * @param pool The pool the search runs in.
+     * @param out Receives the SHA1 of each match.
+     * @return The number of matches reported.
+     */
+    int run(File commitsDir, CommitGraph graph, ForkJoinPool pool,
+            Consumer<String> out) {
+        AtomicInteger found = new AtomicInteger();
+        pool.invoke(new Shard(commitsDir, graph, 0, graph.size(), found,
+                out));
+        return Math.min(found.get(), _max);
+    }
+
+    /**
+     * Returns whether the commit at INDEX of GRAPH, stored in COMMITSDIR,
+     * matches THIS search.
+     * @param commitsDir The directory holding our encoded commits.
+     * @param graph The commit graph.
+     * @param index The index of a commit in GRAPH.
+     * @return True if the commit matches.
+     */
+    private boolean matches(File commitsDir, CommitGraph graph, int index) {
+        long time = graph.timestamp(index);
+        if (time < _since || time > _until) {
+            return false;
+        }
+        if (_grep == null) {
+            return true;
+        }
+        String message = Commit.decodeMessage(ObjectStore.read(commitsDir,
+                ObjectStore.COMMIT, graph.sha1(index)));
+        return _grep.matcher(message).find();
+    }
+
+    /**
+     * Returns the date written as VALUE.
+     * @param value A date such as 2024-05-31.
+     * @return The date.
+     */
+    private static LocalDate date(String value) {
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw Utils.error("Invalid date %s.", value);
+        }
+    }
+
+    /**
+     * Returns the time at which DATE starts in our time zone.
+     * @param date A date.
+     * @return Milliseconds since the epoch.
+     */
+    private static long startOfDay(LocalDate date) {
+        return date.atStartOfDay(ZoneId.systemDefault()).toInstant()
+                .toEpochMilli();
+    }
+
+    /** The task searching a range of the commits of a commit graph. */
+    private class Shard extends RecursiveAction {
+
+        /** The directory holding our encoded commits. */
+        private final File _commitsDir;
+
+        /** The commit graph. */
+        private final CommitGraph _graph;
+
+        /** The index of the first commit we search. */
+        private final int _start;
+
+        /** The index just past the last commit we search. */
+        private final int _end;
+
+        /** The number of matches found by every task so far. */
+        private final AtomicInteger _found;
+
+        /** Receives the SHA1 of each match. */
+        private final Consumer<String> _out;
+
+        /**
+         * A task searching the commits of GRAPH, stored in COMMITSDIR,
+         * from index START up to END, counting matches in FOUND and
+         * passing the first _max to OUT.
+         * @param commitsDir The directory holding our encoded commits.
+         * @param graph The commit graph.
+         * @param start The index of the first commit.
+         * @param end The index just past the last commit.
+         * @param found The number of matches so far.
+         * @param out Receives the SHA1 of each match.
+         */
+        Shard(File commitsDir, CommitGraph graph, int start, int end,
+              AtomicInteger found, Consumer<String> out) {
+            _commitsDir = commitsDir;
+            _graph = graph;
+            _start = start;
+            _end = end;
+            _found = found;
+            _out = out;
+        }
+
+        @Override
+        protected void compute() {
+            if (_end - _start > SHARD) {
+                int middle = (_start + _end) >>> 1;
+                invokeAll(new Shard(_commitsDir, _graph, _start, middle,
+                                _found, _out),
+                        new Shard(_commitsDir, _graph, middle, _end,
+                                _found, _out));
+                return;
+            }
+            for (int i = _start; i < _end && _found.get() < _max; i += 1) {
+                if (matches(_commitsDir, _graph, i)
+                        && _found.incrementAndGet() <= _max) {
+                    synchronized (_found) {
+                        _out.accept(_graph.sha1(i));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package gitlet;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.util.Set;
+
+/**
+ * The SERVE command: a process that runs the commands of many clients, so
+ * that they neither start a JVM of their own nor load the commit graph,
+ * the index and the packs again each time.
+ *
+ * The server listens on the Unix domain socket .gitlet/server.sock and
+ * runs one command per connection, in the order they arrive. A client
+ * sends the number of its arguments followed by each argument in
+ * modified UTF-8, as DataOutputStream writes them; the server sends back
+ * everything the command prints and closes the connection. Like every
+ * command, those of the server take the lock of the repository and then
+ * reload what other processes changed in the meantime, so the server
+ * holds no lock between commands. See Client for the other end.
+ * @author Wilson Chu
+ */
+class Server {
+
+    /** The socket of the server, relative to the CWD so that its path
+     *  stays within the length the system allows. */
+    static final File SOCKET = new File(".gitlet", "server.sock");
+
+    /** The commands that a client has to run in its own process. */
+    private static final Set<String> LOCAL = Set.of("serve", "watch");
+
+    /**
+     * Serves REPOSITORY, whose working directory is the CWD, until the
+     * process is killed.
+     * @param repository The repository we serve.
+     */
+    static void run(Repository repository) {
+        SocketChannel running = connect();
+        if (running != null) {
+            close(running);
+            throw Utils.error("A server is already running.");
+        }
+        try (ServerSocketChannel server = ServerSocketChannel.open(
+                StandardProtocolFamily.UNIX)) {
+            Files.deleteIfExists(SOCKET.toPath());
+            server.bind(UnixDomainSocketAddress.of(SOCKET.toPath()));
+            Runtime.getRuntime().addShutdownHook(new Thread(SOCKET::delete));
+            PrintStream console = System.out;
+            while (true) {
+                try (SocketChannel client = server.accept()) {
+                    serve(repository, client, console);
+                } catch (IOException e) {
+                    /* The client went away; the next one may not. */
+                    continue;
+                }
+            }
+        } catch (IOException e) {
+            throw Utils.error("Could not listen on %s.", SOCKET);
+        }
+    }
+
+    /**
+     * Returns whether the command ARGS has to run in the process of the
+     * client: the server has neither its standard input nor a reason to
+     * start another server or watcher.
+     * @param args The arguments of a command.
+     * @return True for serve, watch, and batch reading standard input.
+     */
+    static boolean isLocal(String... args) {
+        return args.length > 0 && (LOCAL.contains(args[0])
+                || args[0].equals("batch") && args.length == 1);
+    }
+
+    /**
+     * Returns a connection to the server of the repository in the CWD.
+     * @return The connection, or null if no server is running.
+     */
+    static SocketChannel connect() {
+        if (!SOCKET.exists()) {
+            return null;
+        }
+        try {
+            return SocketChannel.open(UnixDomainSocketAddress.of(
+                    SOCKET.toPath()));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Runs the command sent by CLIENT against REPOSITORY with its output
+     * going back to it. Errors that are not GitletExceptions are reported
+     * to CLIENT and on CONSOLE, the output of the server, instead of
+     * stopping us.
+     * @param repository The repository we serve.
+     * @param client The connection to a client.
+     * @param console The standard output of the server.
+     * @throws IOException If the command cannot be read.
+     */
+    private static void serve(Repository repository, SocketChannel client,
+                              PrintStream console) throws IOException {
+        DataInputStream in = new DataInputStream(
+                Channels.newInputStream(client));
+        String[] args = new String[in.readInt()];
+        for (int i = 0; i < args.length; i += 1) {
+            args[i] = in.readUTF();
+        }
+        PrintStream out = new PrintStream(Channels.newOutputStream(client));
+        System.setOut(out);
+        try {
+            if (isLocal(args)) {
+                throw Utils.error("The %s command cannot be sent to a "
+                        + "server.", args[0]);
+            }
+            Main.run(() -> repository, args);
+        } catch (GitletException e) {
+            out.println(e.getMessage());
+        } catch (RuntimeException e) {
+            out.println("Internal error: " + e);
+            e.printStackTrace(console);
+        } finally {
+            System.setOut(console);
+            out.flush();
+        }
+    }
+
+    /**
+     * Closes CHANNEL, ignoring any error.
+     * @param channel An open channel.
+     */
+    private static void close(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            return;
+        }
+    }
+}
@@ -1,19 +1,33 @@
 package gitlet;
 
+import java.io.File;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
- * The class that will be serialized into the STAGE file
+ * The class that will be encoded into the STAGE file
  * where the blobs being tracked will be placed for commits.
  * The STATUS command can access this information in order to
- * retrieve relevant information for the user.
+ * retrieve relevant information for the user. The stage is stored in
+ * the encoding described in Encoding; the lists that only status
+ * fills, by calling scan, are not stored.
  * @author Wilson Chu
  */
 public class Stage implements Serializable {
 
+    /** Pinned so that .gitlet folders written by older versions of this
+     *  class can still be read. */
+    private static final long serialVersionUID = -3942125950953899541L;
+
+    /** The magic number of encoded stages. */
+    private static final int MAGIC = 0x67737467;
+
     /** This instance variable represents the BLOBS we want to update or add in
      *  our next commit. The key is the user defined name of the file and the
      *  value is the corresponding blob that is located in our blobs directory.
@@ -27,7 +41,7 @@ public class Stage implements Serializable {
     private HashMap<String, String> removedFilesHashMap = new HashMap<>();
 
 
-    /* The instance variables below are all used by toString and must be
+    /* The instance variables below are all used by format and must be
     update accordingly.
      */
 
@@ -57,51 +71,133 @@ public class Stage implements Serializable {
 
     /* Helpful functions that other classes can use to manipulate the stage. */
 
+    /**
+     * Returns the encoding of THIS stage.
+     * @return The encoded stage.
+     */
+    byte[] encode() {
+        return Encoding.encode(MAGIC, out -> {
+            Encoding.writeMap(out, stagedFilesHashMap);
+            Encoding.writeMap(out, removedFilesHashMap);
+            Encoding.writeList(out, branches);
+            Encoding.writeList(out, stagedFiles);
+            Encoding.writeList(out, removedFiles);
+        });
+    }
+
+    /**
+     * Returns the stage encoded in BYTES.
+     * @param bytes An encoded stage.
+     * @return The stage.
+     */
+    static Stage decode(byte[] bytes) {
+        return Encoding.decode(bytes, MAGIC, "stage", in -> {
+            Stage stage = new Stage();
+            stage.stagedFilesHashMap = Encoding.readMap(in);
+            stage.removedFilesHashMap = Encoding.readMap(in);
+            stage.branches = Encoding.readList(in);
+            stage.stagedFiles = Encoding.readList(in);
+            stage.removedFiles = Encoding.readList(in);
+            return stage;
+        });
+    }
+
+    /**
+     * Fills the modifiedNotStagedFiles and untrackedFiles lists by
+     * comparing the working directory ROOT with THIS stage and the files
+     * TRACKED by the head commit. Every file that is staged or tracked
+     * and not staged for removal is compared with the blob we expect it
+     * to hold, in parallel and through INDEX, so unchanged files cost a
+     * stat rather than a read, and nothing at all if CHANGES shows that
+     * a watcher saw no change to them. Files that are neither are
+     * untracked, unless they are ignored. INDEX is left listing every
+     * file of the working directory.
+     * @param root The top of the working directory.
+     * @param tracked The files of the head commit and their blobs.
+     * @param index The stat cache of the working directory.
+     * @param changes What a watcher saw change since INDEX was scanned.
+     */
+    void scan(File root, Map<String, String> tracked, Index index,
+              Watcher.Changes changes) {
+        TreeMap<String, Boolean> present = WorkingTree.files(root, "",
+                index, changes);
+        HashSet<String> missing = new HashSet<>(tracked.keySet());
+        missing.addAll(stagedFilesHashMap.keySet());
+        missing.removeAll(present.keySet());
+        ArrayList<String> paths = new ArrayList<>(present.keySet());
+        paths.addAll(missing);
+        ConcurrentLinkedQueue<String> modified =
+                new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<String> untracked =
+                new ConcurrentLinkedQueue<>();
+        paths.parallelStream().forEach(path -> {
+            String expected = stagedFilesHashMap.get(path);
+            if (expected == null && !removedFilesHashMap.containsKey(path)) {
+                expected = tracked.get(path);
+            }
+            File file = new File(root, path);
+            Boolean check = present.get(path);
+            if (expected == null) {
+                if (check != null) {
+                    untracked.add(path);
+                    index.see(path);
+                }
+            } else if (check == null && !file.isFile()) {
+                modified.add(path + " (deleted)");
+            } else if (!expected.equals(index.hash(path, file,
+                    check == null || check))) {
+                modified.add(path + " (modified)");
+            }
+        });
+        index.retain(present.keySet());
+        modifiedNotStagedFiles = new ArrayList<>(modified);
+        untrackedFiles = new ArrayList<>(untracked);
+    }
 
 
     /**
      * Represents the information in our instance variables in the proper
-     * format as described by the spec. This function is inherently
-     * called when we use the command STATUS.
-     * @return The formatted String returned by our toString method.
+     * format as described by the spec, marking ACTIVEBRANCH as the branch
+     * we are on. This function is called when we use the command STATUS.
+     * @param activeBranch The name of the branch we are on.
+     * @return The formatted String.
      */
-    @Override
-    public String toString() {
+    public String format(String activeBranch) {
         StringBuilder completeStage = new StringBuilder();
-        completeStage.append(Repo.SEPERATOR + " Branches "
-                + Repo.SEPERATOR + "\n");
+        completeStage.append(Repository.SEPERATOR + " Branches "
+                + Repository.SEPERATOR + "\n");
         Collections.sort(branches);
         for (String branch : branches) {
-            if (branch.equals(Repo.getActiveBranch().getName())) {
+            if (branch.equals(activeBranch)) {
                 completeStage.append("*");
             }
             completeStage.append(branch).append("\n");
         }
         completeStage.append("\n");
-        completeStage.append(Repo.SEPERATOR + " Staged Files "
-                + Repo.SEPERATOR + "\n");
+        completeStage.append(Repository.SEPERATOR + " Staged Files "
+                + Repository.SEPERATOR + "\n");
         Collections.sort(stagedFiles);
         for (String stagedFile : stagedFiles) {
             completeStage.append(stagedFile).append("\n");
         }
         completeStage.append("\n");
-        completeStage.append(Repo.SEPERATOR + " Removed Files "
-                + Repo.SEPERATOR + "\n");
+        completeStage.append(Repository.SEPERATOR + " Removed Files "
+                + Repository.SEPERATOR + "\n");
         Collections.sort(removedFiles);
         for (String removedFile : removedFiles) {
             completeStage.append(removedFile).append("\n");
         }
         completeStage.append("\n");
-        completeStage.append(Repo.SEPERATOR + " Modifications Not "
+        completeStage.append(Repository.SEPERATOR + " Modifications Not "
                 + "Staged For Commit "
-                + Repo.SEPERATOR + "\n");
+                + Repository.SEPERATOR + "\n");
         Collections.sort(modifiedNotStagedFiles);
         for (String modifiedNotStagedFile : modifiedNotStagedFiles) {
             completeStage.append(modifiedNotStagedFile).append("\n");
         }
         completeStage.append("\n");
-        completeStage.append(Repo.SEPERATOR + " Untracked Files "
-                + Repo.SEPERATOR + "\n");
+        completeStage.append(Repository.SEPERATOR + " Untracked Files "
+                + Repository.SEPERATOR + "\n");
         Collections.sort(untrackedFiles);
         for (String untrackedFile : untrackedFiles) {
             completeStage.append(untrackedFile).append("\n");
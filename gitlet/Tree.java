@@ -0,0 +1,334 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * A directory in the snapshot of a commit, stored in the .gitlet/trees
+ * folder of its repository, which every method below takes as DIR. A
+ * tree maps the name of each file in the directory to the id of its
+ * blob, and the name of each subdirectory, followed by a slash, to the
+ * id of another tree. Trees are named by the SHA1 of their contents,
+ * so a commit only stores the id of its root tree, the trees of the
+ * directories it left untouched are shared with its parent, and two
+ * snapshots can be compared without looking inside any subtree whose id
+ * they share.
+ *
+ * A tree is stored as its entries in sorted order, each written as the
+ * UTF-8 bytes of its name, a zero byte and the 20 bytes of its id.
+ * @author Wilson Chu
+ */
+class Tree {
+
+    /** The number of bytes in the id of an entry. */
+    private static final int ID_BYTES = 20;
+
+    /** The separator between the directories of a path. */
+    static final char SEPARATOR = '/';
+
+    /** The most trees we keep decoded for each trees folder. */
+    static final int CACHE_ENTRIES = 8192;
+
+    /** The most entries, in all, of the trees we keep decoded for each
+     *  trees folder. */
+    static final long CACHE_WEIGHT = 1L << 20;
+
+    /** The decoded trees of each trees folder we have read from. */
+    private static final ConcurrentHashMap<File, ObjectCache<Tree>>
+            CACHES = new ConcurrentHashMap<>();
+
+    /** The entries of THIS tree, keyed by name. */
+    private final TreeMap<String, String> _entries;
+
+    /**
+     * A tree with ENTRIES.
+     * @param entries The entries of the tree.
+     */
+    private Tree(TreeMap<String, String> entries) {
+        _entries = entries;
+    }
+
+    /**
+     * Returns the tree SHA1 from the trees folder DIR, decoding it only if
+     * it is not in the tree cache of DIR. The id null stands for the empty
+     * tree. The tree is shared with every other reader and must not be
+     * changed.
+     * @param dir A trees folder.
+     * @param sha1 The id of a tree, or null.
+     * @return The tree.
+     */
+    static Tree read(File dir, String sha1) {
+        if (sha1 == null) {
+            return new Tree(new TreeMap<>());
+        }
+        return cache(dir).get(sha1, id -> decode(dir, id));
+    }
+
+    /**
+     * Returns the cache of decoded trees of the trees folder DIR, which
+     * every repository open in this process shares.
+     * @param dir A trees folder.
+     * @return Its tree cache.
+     */
+    static ObjectCache<Tree> cache(File dir) {
+        return CACHES.computeIfAbsent(dir, unused -> new ObjectCache<>(
+                CACHE_ENTRIES, CACHE_WEIGHT, tree -> tree._entries.size()));
+    }
+
+    /**
+     * Reads and decodes the tree SHA1 from the trees folder DIR.
+     * @param dir A trees folder.
+     * @param sha1 The id of a tree.
+     * @return The tree.
+     */
+    private static Tree decode(File dir, String sha1) {
+        TreeMap<String, String> entries = new TreeMap<>();
+        byte[] data = ObjectStore.read(dir, ObjectStore.TREE, sha1);
+        int pos = 0;
+        while (pos < data.length) {
+            int end = pos;
+            while (end < data.length && data[end] != 0) {
+                end += 1;
+            }
+            if (end + 1 + ID_BYTES > data.length) {
+                throw Utils.error("Corrupted tree %s.", sha1);
+            }
+            entries.put(new String(data, pos, end - pos,
+                            StandardCharsets.UTF_8),
+                    ObjectStore.toHex(Arrays.copyOfRange(data, end + 1,
+                            end + 1 + ID_BYTES)));
+            pos = end + 1 + ID_BYTES;
+        }
+        return new Tree(entries);
+    }
+
+    /**
+     * Stores THIS tree in the trees folder DIR.
+     * @param dir A trees folder.
+     * @return The id of THIS tree.
+     */
+    String write(File dir) {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        for (Map.Entry<String, String> entry : _entries.entrySet()) {
+            data.writeBytes(entry.getKey().getBytes(StandardCharsets.UTF_8));
+            data.write(0);
+            for (int i = 0; i < ID_BYTES; i += 1) {
+                data.write(Integer.parseInt(entry.getValue().substring(2 * i,
+                        2 * i + 2), 16));
+            }
+        }
+        return ObjectStore.write(dir, ObjectStore.TREE, data.toByteArray());
+    }
+
+    /**
+     * Stores the snapshot described by FILES, a map from paths to blob
+     * ids, as trees.
+     * @param dir A trees folder.
+     * @param files The files of the snapshot.
+     * @return The id of its root tree.
+     */
+    static String build(File dir, Map<String, String> files) {
+        return update(dir, null, files);
+    }
+
+    /**
+     * Stores the snapshot obtained by applying CHANGES to the snapshot
+     * whose root tree is ROOT. Only the trees on the paths of CHANGES are
+     * rewritten; every other subtree is shared with ROOT.
+     * @param dir A trees folder.
+     * @param root The id of the root tree we start from, or null.
+     * @param changes A map from paths to their new blob ids, or to null
+     *                for paths that are removed.
+     * @return The id of the new root tree.
+     */
+    static String update(File dir, String root,
+                         Map<String, String> changes) {
+        String result = updateTree(dir, root, changes);
+        return result == null ? new Tree(new TreeMap<>()).write(dir)
+                : result;
+    }
+
+    /**
+     * Returns the id of the blob at PATH in the snapshot whose root tree
+     * is ROOT, reading only the trees on the way to it.
+     * @param dir A trees folder.
+     * @param root The id of a root tree.
+     * @param path The path of a file.
+     * @return The id of its blob, or null if there is no such file.
+     */
+    static String lookup(File dir, String root, String path) {
+        String tree = root;
+        int start = 0;
+        for (int slash = path.indexOf(SEPARATOR); slash != -1 && tree != null;
+             slash = path.indexOf(SEPARATOR, start)) {
+            tree = read(dir, tree)._entries.get(path.substring(start,
+                    slash + 1));
+            start = slash + 1;
+        }
+        return tree == null ? null : read(dir, tree)._entries.get(
+                path.substring(start));
+    }
+
+    /**
+     * Returns every file of the snapshot whose root tree is ROOT.
+     * @param dir A trees folder.
+     * @param root The id of a root tree.
+     * @return A map from the path of each file to the id of its blob.
+     */
+    static HashMap<String, String> flatten(File dir, String root) {
+        HashMap<String, String> result = new HashMap<>();
+        walk(dir, root, null, result::put);
+        return result;
+    }
+
+    /**
+     * Calls VISITOR on the path and blob id of every file of the snapshot
+     * whose root tree is ROOT. Subtrees whose ids are in SEEN are
+     * skipped, and the ids of the subtrees we visit are added to it.
+     * @param dir A trees folder.
+     * @param root The id of a root tree.
+     * @param seen The ids of trees to skip, or null to visit them all.
+     * @param visitor Called on each path and blob id.
+     */
+    static void walk(File dir, String root, Set<String> seen,
+                     BiConsumer<String, String> visitor) {
+        walk(dir, root, "", seen, visitor);
+    }
+
+    /**
+     * Returns the files that differ between the snapshots whose root
+     * trees are ROOT1 and ROOT2, skipping every subtree they share.
+     * @param dir A trees folder.
+     * @param root1 The id of the first root tree, or null.
+     * @param root2 The id of the second root tree, or null.
+     * @return A map from each path that differs to a pair holding its
+     *         blob id in the first and in the second snapshot, either of
+     *         which is null if the file is missing there.
+     */
+    static TreeMap<String, String[]> diff(File dir, String root1,
+                                          String root2) {
+        TreeMap<String, String[]> result = new TreeMap<>();
+        diff(dir, root1, root2, "", result);
+        return result;
+    }
+
+    /**
+     * Applies CHANGES, whose paths are relative to the tree TREE, and
+     * stores the trees that change.
+     * @param dir A trees folder.
+     * @param tree The id of the tree, or null if it does not exist yet.
+     * @param changes A map from relative paths to blob ids or null.
+     * @return The id of the new tree, or null if it is left empty.
+     */
+    private static String updateTree(File dir, String tree,
+                                     Map<String, String> changes) {
+        Tree result = new Tree(new TreeMap<>(read(dir, tree)._entries));
+        TreeMap<String, HashMap<String, String>> subdirectories =
+                new TreeMap<>();
+        for (Map.Entry<String, String> change : changes.entrySet()) {
+            String path = change.getKey();
+            int slash = path.indexOf(SEPARATOR);
+            if (slash != -1) {
+                subdirectories.computeIfAbsent(path.substring(0, slash + 1),
+                        k -> new HashMap<>()).put(path.substring(slash + 1),
+                        change.getValue());
+            } else if (change.getValue() == null) {
+                result._entries.remove(path);
+            } else {
+                result._entries.put(path, change.getValue());
+            }
+        }
+        for (Map.Entry<String, HashMap<String, String>> subdirectory
+                : subdirectories.entrySet()) {
+            String name = subdirectory.getKey();
+            String subtree = updateTree(dir, result._entries.get(name),
+                    subdirectory.getValue());
+            if (subtree == null) {
+                result._entries.remove(name);
+            } else {
+                result._entries.put(name, subtree);
+            }
+        }
+        if (result._entries.isEmpty()) {
+            return null;
+        }
+        return result.write(dir);
+    }
+
+    /**
+     * Calls VISITOR on every file below the tree TREE, whose path is
+     * PREFIX, skipping the subtrees in SEEN.
+     * @param dir A trees folder.
+     * @param tree The id of a tree.
+     * @param prefix The path of TREE, ending with a slash unless empty.
+     * @param seen The ids of trees to skip, or null.
+     * @param visitor Called on each path and blob id.
+     */
+    private static void walk(File dir, String tree, String prefix,
+                             Set<String> seen,
+                             BiConsumer<String, String> visitor) {
+        if (seen != null && !seen.add(tree)) {
+            return;
+        }
+        for (Map.Entry<String, String> entry
+                : read(dir, tree)._entries.entrySet()) {
+            String path = prefix + entry.getKey();
+            if (isDirectory(entry.getKey())) {
+                walk(dir, entry.getValue(), path, seen, visitor);
+            } else {
+                visitor.accept(path, entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Adds to RESULT the files that differ between the trees TREE1 and
+     * TREE2, whose path is PREFIX.
+     * @param dir A trees folder.
+     * @param tree1 The id of the first tree, or null.
+     * @param tree2 The id of the second tree, or null.
+     * @param prefix The path of both trees.
+     * @param result The differences found so far.
+     */
+    private static void diff(File dir, String tree1, String tree2,
+                             String prefix,
+                             TreeMap<String, String[]> result) {
+        if (tree1 != null && tree1.equals(tree2)) {
+            return;
+        }
+        TreeMap<String, String> entries1 = read(dir, tree1)._entries;
+        TreeMap<String, String> entries2 = read(dir, tree2)._entries;
+        TreeSet<String> names = new TreeSet<>(entries1.keySet());
+        names.addAll(entries2.keySet());
+        for (String name : names) {
+            String id1 = entries1.get(name);
+            String id2 = entries2.get(name);
+            if (id1 != null && id1.equals(id2)) {
+                continue;
+            }
+            if (isDirectory(name)) {
+                diff(dir, id1, id2, prefix + name, result);
+            } else {
+                result.put(prefix + name, new String[] {id1, id2});
+            }
+        }
+    }
+
+    /**
+     * Returns whether the entry NAME names a subdirectory.
+     * @param name The name of an entry.
+     * @return True if NAME ends with a slash.
+     */
+    private static boolean isDirectory(String name) {
+        return name.charAt(name.length() - 1) == SEPARATOR;
+    }
+}
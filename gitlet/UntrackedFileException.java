@@ -0,0 +1,13 @@
+package gitlet;
+
+/** Thrown when a command would overwrite or delete a file in the
+ *  working directory that the current commit does not track.
+ *  @author Wilson Chu
+ */
+public class UntrackedFileException extends GitletException {
+
+    /** A UntrackedFileException with MSG as its message. */
+    UntrackedFileException(String msg) {
+        super(msg);
+    }
+}
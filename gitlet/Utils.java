@@ -1,6 +1,7 @@
 package gitlet;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -9,8 +10,13 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -153,6 +159,47 @@ class Utils {
         writeContents(file, serialize(obj));
     }
 
+    /** Replace the contents of FILE by the concatenation of CONTENTS, as
+     *  writeContents does, but through a temporary file in the same
+     *  directory that is synced to disk and then renamed over FILE, so
+     *  that readers and crashes only ever see the old or the new
+     *  contents.  Throws IllegalArgumentException in case of problems. */
+    static void replaceContents(File file, Object... contents) {
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(file.getAbsoluteFile()
+                                        .getParentFile().toPath(),
+                                        "tmp", null);
+            try (FileChannel out = FileChannel.open(temp,
+                                                    StandardOpenOption.WRITE)) {
+                for (Object obj : contents) {
+                    byte[] bytes = obj instanceof byte[] ? (byte[]) obj
+                        : ((String) obj).getBytes(StandardCharsets.UTF_8);
+                    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                }
+                out.force(true);
+            }
+            Files.move(temp, file.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+        } catch (IOException | ClassCastException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            if (temp != null) {
+                temp.toFile().delete();
+            }
+        }
+    }
+
+    /** Replace the contents of FILE by OBJ, as replaceContents does. */
+    static void replaceObject(File file, Serializable obj) {
+        replaceContents(file, serialize(obj));
+    }
+
     /* DIRECTORIES */
 
     /** Filter out all but plain files. */
@@ -216,6 +263,23 @@ class Utils {
         }
     }
 
+    /** Returns an object of type T deserialized from BYTES, casting it to
+     *  EXPECTEDCLASS.  Throws IllegalArgumentException in case of
+     *  problems. */
+    static <T extends Serializable> T deserialize(byte[] bytes,
+                                                  Class<T> expectedClass) {
+        try {
+            ObjectInputStream in =
+                new ObjectInputStream(new ByteArrayInputStream(bytes));
+            T result = expectedClass.cast(in.readObject());
+            in.close();
+            return result;
+        } catch (IOException | ClassCastException
+                 | ClassNotFoundException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
 
 
     /* MESSAGES AND ERROR REPORTING */
@@ -0,0 +1,485 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * The WATCH command: a process that watches every directory of the
+ * working directory and records each path that changes, so that status
+ * and add only have to look at those paths instead of every file.
+ *
+ * The watcher appends the changed paths to the journal .gitlet/watch,
+ * one "SEQUENCE<TAB>PATH" line each, after a first line holding a random
+ * session id. A line with an empty path records an overflow of the
+ * events queue, after which anything may have changed. The session id
+ * and the sequence number of a line together form a token. A scan of
+ * the working directory stores the token current when it started in
+ * the index; the paths changed since are those on the lines after it,
+ * as long as the session is the same and no overflow was recorded.
+ *
+ * Events reach the watcher a little after the changes that cause them,
+ * so before trusting the journal a client creates a cookie file in
+ * .gitlet/watch-cookies and waits for the watcher to record it: every
+ * change made before the cookie is then in the journal. The watcher
+ * holds a lock on .gitlet/watch.lock while it runs; a client that can
+ * take that lock knows that no watcher is running and scans everything.
+ * The journal starts over in a new session when it grows past
+ * MAX_JOURNAL bytes, which costs clients one full scan.
+ * @author Wilson Chu
+ */
+class Watcher {
+
+    /** The name of the journal in the .gitlet folder. */
+    private static final String JOURNAL = "watch";
+
+    /** The name of the lock file held by a running watcher. */
+    private static final String LOCK = "watch.lock";
+
+    /** The name of the folder clients create cookies in. */
+    private static final String COOKIES = "watch-cookies";
+
+    /** The prefix of the path recorded for a cookie. */
+    private static final String COOKIE_PATH = ".gitlet/" + COOKIES + "/";
+
+    /** The name of the repository folder, which is not watched. */
+    private static final String REPOSITORY = ".gitlet";
+
+    /** The size past which the journal starts over. */
+    private static final long MAX_JOURNAL = 16 << 20;
+
+    /** How long a client waits for its cookie, in milliseconds. */
+    private static final long COOKIE_TIMEOUT = 2000;
+
+    /** How long a client sleeps between reads of the journal. */
+    private static final long POLL = 1;
+
+    /** The separator between the sequence number and path of a line. */
+    private static final char TAB = '\t';
+
+    /** The top of the working directory. */
+    private final Path _root;
+
+    /** The folder cookies are created in. */
+    private final Path _cookies;
+
+    /** The journal file. */
+    private final File _journal;
+
+    /** The service delivering our events. */
+    private final WatchService _service;
+
+    /** The directory watched by each key. */
+    private final HashMap<WatchKey, Path> _keys = new HashMap<>();
+
+    /** The key watching each directory. */
+    private final HashMap<Path, WatchKey> _directories = new HashMap<>();
+
+    /** The lines not yet written to the journal. */
+    private final StringBuilder _pending = new StringBuilder();
+
+    /** The stream appending to the journal. */
+    private OutputStream _out;
+
+    /** The number of bytes in the journal. */
+    private long _size;
+
+    /** The sequence number of the last line of the journal. */
+    private long _sequence;
+
+    /**
+     * A watcher of the working directory ROOT of the repository whose
+     * .gitlet folder is REPOSITORY, receiving events from SERVICE.
+     * @param root The top of the working directory.
+     * @param repository The .gitlet folder.
+     * @param service The service delivering our events.
+     */
+    private Watcher(File root, File repository, WatchService service) {
+        _root = root.toPath();
+        _cookies = new File(repository, COOKIES).toPath();
+        _journal = new File(repository, JOURNAL);
+        _service = service;
+    }
+
+    /**
+     * Watches the working directory ROOT of the repository whose .gitlet
+     * folder is REPOSITORY until we are killed.
+     * @param root The top of the working directory.
+     * @param repository The .gitlet folder.
+     */
+    static void run(File root, File repository) {
+        File lockFile = new File(repository, LOCK);
+        try (FileChannel channel = FileChannel.open(lockFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             WatchService service = root.toPath().getFileSystem()
+                     .newWatchService()) {
+            FileLock lock = channel.tryLock();
+            if (lock == null) {
+                throw Utils.error("A watcher is already running.");
+            }
+            new Watcher(root, repository, service).watch();
+        } catch (IOException e) {
+            throw Utils.error("Could not watch the working directory.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the paths that changed in the working directory of the
+     * repository whose .gitlet folder is REPOSITORY since TOKEN.
+     * @param repository The .gitlet folder.
+     * @param token The token of the last scan, or "".
+     * @return The current token, null if no watcher is running, and the
+     *         paths changed since TOKEN, null if they are not known.
+     */
+    static Changes changes(File repository, String token) {
+        if (!running(repository)) {
+            return new Changes(null, null);
+        }
+        File cookieDir = new File(repository, COOKIES);
+        String cookie = Long.toHexString(new Random().nextLong())
+                + "-" + ProcessHandle.current().pid();
+        File cookieFile = new File(cookieDir, cookie);
+        try {
+            if (!cookieFile.createNewFile()) {
+                return new Changes(null, null);
+            }
+            return waitFor(new File(repository, JOURNAL),
+                    COOKIE_PATH + cookie, token);
+        } catch (IOException e) {
+            return new Changes(null, null);
+        } finally {
+            cookieFile.delete();
+        }
+    }
+
+    /**
+     * Returns whether a watcher holds the lock of the repository whose
+     * .gitlet folder is REPOSITORY.
+     * @param repository The .gitlet folder.
+     * @return True if a watcher is running.
+     */
+    private static boolean running(File repository) {
+        File lockFile = new File(repository, LOCK);
+        if (!lockFile.exists()) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(lockFile.toPath(),
+                StandardOpenOption.WRITE)) {
+            FileLock lock = channel.tryLock();
+            if (lock == null) {
+                return true;
+            }
+            lock.release();
+            return false;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads JOURNAL until the line recording COOKIE appears.
+     * @param journal The journal file.
+     * @param cookie The path recorded for our cookie.
+     * @param token The token of the last scan, or "".
+     * @return The changes up to the line of COOKIE, or no changes if it
+     *         does not appear in time.
+     */
+    private static Changes waitFor(File journal, String cookie,
+                                   String token) throws IOException {
+        long deadline = System.currentTimeMillis() + COOKIE_TIMEOUT;
+        String session = null;
+        ArrayList<String> lines = new ArrayList<>();
+        ByteArrayOutputStream partial = new ByteArrayOutputStream();
+        long offset = 0;
+        while (System.currentTimeMillis() < deadline) {
+            try (RandomAccessFile in = new RandomAccessFile(journal, "r")) {
+                String header = in.readLine();
+                if (header != null && !header.equals(session)) {
+                    session = header;
+                    lines.clear();
+                    partial.reset();
+                    offset = in.getFilePointer();
+                }
+                in.seek(Math.max(offset, in.getFilePointer()));
+                byte[] buffer = new byte[(int) Math.min(in.length()
+                        - offset, Integer.MAX_VALUE)];
+                in.readFully(buffer);
+                offset += buffer.length;
+                for (byte b : buffer) {
+                    if (b == '\n') {
+                        lines.add(partial.toString(StandardCharsets.UTF_8));
+                        partial.reset();
+                    } else {
+                        partial.write(b);
+                    }
+                }
+            }
+            for (int i = lines.size() - 1; i >= 0; i -= 1) {
+                int tab = lines.get(i).indexOf(TAB);
+                if (lines.get(i).substring(tab + 1).equals(cookie)) {
+                    return changes(session, lines.subList(0, i + 1),
+                            token);
+                }
+            }
+            try {
+                Thread.sleep(POLL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return new Changes(null, null);
+    }
+
+    /**
+     * Returns the changes since TOKEN recorded by LINES of the journal
+     * of SESSION.
+     * @param session The session of the journal.
+     * @param lines Its lines, up to and including that of our cookie.
+     * @param token The token of the last scan, or "".
+     * @return The changes.
+     */
+    private static Changes changes(String session, List<String> lines,
+                                   String token) {
+        String last = lines.get(lines.size() - 1);
+        String current = session + ":" + last.substring(0,
+                last.indexOf(TAB));
+        int colon = token.lastIndexOf(':');
+        if (colon == -1 || !token.substring(0, colon).equals(session)) {
+            return new Changes(current, null);
+        }
+        long since = Long.parseLong(token.substring(colon + 1));
+        HashSet<String> paths = new HashSet<>();
+        for (String line : lines) {
+            int tab = line.indexOf(TAB);
+            if (Long.parseLong(line.substring(0, tab)) <= since) {
+                continue;
+            }
+            String path = line.substring(tab + 1);
+            if (path.isEmpty()) {
+                return new Changes(current, null);
+            }
+            if (!path.startsWith(REPOSITORY + Tree.SEPARATOR)) {
+                paths.add(path);
+            }
+        }
+        return new Changes(current, paths);
+    }
+
+    /**
+     * Registers every directory of the working directory, starts a new
+     * journal and records events until we are interrupted.
+     */
+    private void watch() throws IOException, InterruptedException {
+        Files.createDirectories(_cookies);
+        for (File cookie : _cookies.toFile().listFiles()) {
+            cookie.delete();
+        }
+        register(_root);
+        register(_cookies);
+        startJournal();
+        while (true) {
+            WatchKey key = _service.take();
+            do {
+                handle(key);
+                key = _service.poll();
+            } while (key != null);
+            flush();
+        }
+    }
+
+    /**
+     * Records the events of KEY.
+     * @param key A signalled key.
+     */
+    private void handle(WatchKey key) throws IOException {
+        Path dir = _keys.get(key);
+        if (dir == null) {
+            return;
+        }
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                record("");
+                continue;
+            }
+            Path path = dir.resolve((Path) event.context());
+            if (dir.equals(_cookies)) {
+                if (event.kind() == ENTRY_CREATE) {
+                    record(COOKIE_PATH + path.getFileName());
+                }
+                continue;
+            }
+            if (path.getFileName().toString().equals(REPOSITORY)) {
+                continue;
+            }
+            record(_root.relativize(path).toString()
+                    .replace(File.separatorChar, Tree.SEPARATOR));
+            if (event.kind() == ENTRY_DELETE) {
+                unregister(path);
+            } else if (event.kind() == ENTRY_CREATE
+                    && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                register(path);
+            }
+        }
+        if (!key.reset()) {
+            _directories.remove(_keys.remove(key));
+        }
+    }
+
+    /**
+     * Watches DIR and every directory below it, except .gitlet folders.
+     * @param dir A directory of the working directory.
+     */
+    private void register(Path dir) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path path,
+                    BasicFileAttributes attributes) throws IOException {
+                if (path.getFileName().toString().equals(REPOSITORY)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                WatchKey key = path.register(_service, ENTRY_CREATE,
+                        ENTRY_DELETE, ENTRY_MODIFY);
+                _keys.put(key, path);
+                _directories.put(path, key);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path path,
+                                                   IOException e) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Stops watching PATH and the directories below it, if it was a
+     * directory that was moved or deleted.
+     * @param path A path that no longer exists.
+     */
+    private void unregister(Path path) {
+        if (!_directories.containsKey(path)) {
+            return;
+        }
+        for (Map.Entry<Path, WatchKey> entry
+                : new ArrayList<>(_directories.entrySet())) {
+            if (entry.getKey().startsWith(path)) {
+                entry.getValue().cancel();
+                _keys.remove(entry.getValue());
+                _directories.remove(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Replaces the journal by an empty one in a new session.
+     */
+    private void startJournal() throws IOException {
+        if (_out != null) {
+            _out.close();
+        }
+        File temp = new File(_journal.getPath() + ".tmp");
+        String header = Long.toHexString(new Random().nextLong()) + "\n";
+        Utils.writeContents(temp, header);
+        Files.move(temp.toPath(), _journal.toPath(),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        _out = new FileOutputStream(_journal, true);
+        _size = header.length();
+        _sequence = 0;
+    }
+
+    /**
+     * Adds a line recording that PATH changed.
+     * @param path The path relative to the working directory, or "" for
+     *             an overflow.
+     */
+    private void record(String path) {
+        _sequence += 1;
+        _pending.append(_sequence).append(TAB).append(path).append('\n');
+    }
+
+    /**
+     * Appends the pending lines to the journal, first starting a new one
+     * if they would make it too large.
+     */
+    private void flush() throws IOException {
+        byte[] bytes = _pending.toString().getBytes(StandardCharsets.UTF_8);
+        _pending.setLength(0);
+        if (_size + bytes.length > MAX_JOURNAL) {
+            startJournal();
+        }
+        _out.write(bytes);
+        _out.flush();
+        _size += bytes.length;
+    }
+
+    /** The paths a watcher saw change since a given token. */
+    static class Changes {
+
+        /** The current token, or null if no watcher is running. */
+        private final String _token;
+
+        /** The paths changed since the token asked about, or null. */
+        private final Set<String> _paths;
+
+        /**
+         * Changes to PATHS, up to TOKEN.
+         * @param token The current token, or null.
+         * @param paths The paths that changed, or null if unknown.
+         */
+        Changes(String token, Set<String> paths) {
+            _token = token;
+            _paths = paths;
+        }
+
+        /**
+         * Returns the current token.
+         * @return The token, or null if no watcher is running.
+         */
+        String token() {
+            return _token;
+        }
+
+        /**
+         * Returns the paths that changed. A changed directory may hold
+         * any number of changed files.
+         * @return The paths, or null if anything may have changed.
+         */
+        Set<String> paths() {
+            return _paths;
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.regex.Pattern;
+
+/**
+ * The files of a working directory, found by walking its subdirectories
+ * in parallel. Each directory is listed by its own fork/join task, so a
+ * tree with many directories is read on every core, while a directory
+ * with many files costs a single listing. The .gitlet folder is never
+ * walked, symbolic links to directories are not followed, and the paths
+ * matched by the .gitletignore file at the top of the working directory
+ * are skipped.
+ *
+ * Each line of .gitletignore is a pattern, except for blank lines and
+ * lines starting with #. A pattern ending with a slash only matches
+ * directories, and everything below an ignored directory is ignored. A
+ * pattern holding any other slash is matched against the whole path
+ * from the top of the working directory; one without is matched against
+ * the name of each file and directory at any depth. In a pattern, *
+ * matches any run of characters but a slash, ? matches one such
+ * character, ** matches across slashes, [...] matches a set of
+ * characters, and a backslash quotes the character after it. A pattern
+ * starting with ! re-includes what an earlier pattern ignored; the last
+ * matching pattern wins.
+ *
+ * Paths are relative to the working directory and use / as their
+ * separator, like the paths stored in trees.
+ * @author Wilson Chu
+ */
+class WorkingTree {
+
+    /** The name of the file listing the paths we ignore. */
+    static final String IGNORE_FILE = ".gitletignore";
+
+    /** The name of the repository folder, which we never walk. */
+    private static final String REPOSITORY = ".gitlet";
+
+    /** The patterns of our ignore file, in the order they were given. */
+    private final List<Rule> _rules;
+
+    /**
+     * The working tree at ROOT, ignoring what its ignore file lists.
+     * @param root The top of the working directory.
+     */
+    private WorkingTree(File root) {
+        _rules = new ArrayList<>();
+        File ignoreFile = new File(root, IGNORE_FILE);
+        if (ignoreFile.isFile()) {
+            for (String line : Utils.readContentsAsString(ignoreFile)
+                    .split("\r?\n")) {
+                Rule rule = Rule.parse(line);
+                if (rule != null) {
+                    _rules.add(rule);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns every file below DIRECTORY in the working directory ROOT,
+     * walking its subdirectories in POOL.
+     * @param root The top of a working directory.
+     * @param directory The path of a directory, relative to ROOT.
+     * @param pool The pool the directories are listed in.
+     * @return The paths of its files that are not ignored, relative to
+     *         ROOT and sorted.
+     */
+    static List<String> files(File root, String directory,
+                              ForkJoinPool pool) {
+        return new WorkingTree(root).walk(root, prefix(directory), pool);
+    }
+
+    /**
+     * Returns the files below DIRECTORY in the working directory ROOT,
+     * each mapped to whether it may have changed since INDEX last saw
+     * it. Unless CHANGES lists the paths changed since then, DIRECTORY
+     * is walked and every file may have changed. Otherwise the files are
+     * those INDEX knows about, updated with the changed paths, and only
+     * those paths, or the files below them if they are directories, may
+     * have changed. A change to the ignore file forces a walk.
+     * @param root The top of a working directory.
+     * @param directory The path of a directory, relative to ROOT.
+     * @param index The stat cache of the working directory.
+     * @param changes What a watcher saw change since INDEX was scanned.
+     * @return The paths of the files that are not ignored, mapped to
+     *         true if they have to be looked at.
+     */
+    static TreeMap<String, Boolean> files(File root, String directory,
+                                          Index index,
+                                          Watcher.Changes changes) {
+        String prefix = prefix(directory);
+        WorkingTree tree = new WorkingTree(root);
+        TreeMap<String, Boolean> result = new TreeMap<>();
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        Set<String> changed = changes == null ? null : changes.paths();
+        if (changed == null || changed.contains(IGNORE_FILE)) {
+            for (String path : tree.walk(root, prefix, pool)) {
+                result.put(path, true);
+            }
+            return result;
+        }
+        for (String path : index.paths()) {
+            if (path.startsWith(prefix)) {
+                result.put(path, false);
+            }
+        }
+        for (String path : changed) {
+            if (!prefix.isEmpty() && prefix.startsWith(path
+                    + Tree.SEPARATOR)) {
+                return files(root, directory, index, null);
+            }
+            if (!path.startsWith(prefix)) {
+                continue;
+            }
+            result.remove(path);
+            result.subMap(path + Tree.SEPARATOR,
+                    path + (char) (Tree.SEPARATOR + 1)).clear();
+            Path file = root.toPath().resolve(path);
+            if (Files.isDirectory(file, LinkOption.NOFOLLOW_LINKS)) {
+                if (!tree.ignoredPath(path, true)) {
+                    for (String below : tree.walk(root,
+                            path + Tree.SEPARATOR, pool)) {
+                        result.put(below, true);
+                    }
+                }
+            } else if (Files.isRegularFile(file)
+                    && !tree.ignoredPath(path, false)) {
+                result.put(path, true);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the prefix of the paths below DIRECTORY.
+     * @param directory The path of a directory, relative to the CWD.
+     * @return Its normalized path followed by a slash, or "" for the CWD.
+     */
+    private static String prefix(String directory) {
+        String prefix = normalize(directory);
+        return prefix.isEmpty() ? prefix : prefix + Tree.SEPARATOR;
+    }
+
+    /**
+     * Returns PATH in the form used by trees: relative, without . or ..
+     * components, and separated by slashes.
+     * @param path A path relative to the CWD.
+     * @return The same path, normalized, or "" for the CWD itself.
+     */
+    static String normalize(String path) {
+        return Paths.get(path).normalize().toString()
+                .replace(File.separatorChar, Tree.SEPARATOR);
+    }
+
+    /**
+     * Deletes the file at PATH in the working directory ROOT, along with
+     * every directory above it that is left empty.
+     * @param root The top of a working directory.
+     * @param path The path of a file, relative to ROOT.
+     */
+    static void remove(File root, String path) {
+        File file = new File(root, path);
+        file.delete();
+        File dir = file.getParentFile();
+        while (dir != null && !dir.equals(root) && dir.delete()) {
+            dir = dir.getParentFile();
+        }
+    }
+
+    /**
+     * Returns every file below the directory of the working directory
+     * ROOT whose path is PREFIX, walking its subdirectories in POOL.
+     * @param root The top of a working directory.
+     * @param prefix The path of a directory followed by a slash, or "".
+     * @param pool The pool the directories are listed in.
+     * @return The paths of its files that are not ignored, sorted.
+     */
+    private List<String> walk(File root, String prefix, ForkJoinPool pool) {
+        List<String> result = pool.invoke(new Walk(
+                new File(root, prefix).toPath(), prefix));
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Returns whether PATH is ignored, either itself or because one of
+     * the directories above it is, or whether it lies inside a .gitlet
+     * folder.
+     * @param path The path of a file or directory.
+     * @param directory True if PATH is a directory.
+     * @return True if a walk would not reach PATH.
+     */
+    private boolean ignoredPath(String path, boolean directory) {
+        int start = 0;
+        for (int slash = path.indexOf(Tree.SEPARATOR); slash != -1;
+             slash = path.indexOf(Tree.SEPARATOR, start)) {
+            String name = path.substring(start, slash);
+            if (name.equals(REPOSITORY)
+                    || ignored(path.substring(0, slash), true)) {
+                return true;
+            }
+            start = slash + 1;
+        }
+        return path.substring(start).equals(REPOSITORY) && directory
+                || ignored(path, directory);
+    }
+
+    /**
+     * Returns whether PATH is ignored.
+     * @param path The path of a file or directory.
+     * @param directory True if PATH is a directory.
+     * @return True if the last rule matching PATH ignores it.
+     */
+    private boolean ignored(String path, boolean directory) {
+        boolean result = false;
+        for (Rule rule : _rules) {
+            if ((directory || !rule._directoryOnly)
+                    && rule._pattern.matcher(path).matches()) {
+                result = !rule._negated;
+            }
+        }
+        return result;
+    }
+
+    /** The task listing one directory and forking a task for each of its
+     *  subdirectories. */
+    private class Walk extends RecursiveTask<List<String>> {
+
+        /** The directory we list. */
+        private final Path _dir;
+
+        /** The path of _DIR, ending with a slash unless it is empty. */
+        private final String _prefix;
+
+        /**
+         * A task listing DIR, whose path is PREFIX.
+         * @param dir The directory.
+         * @param prefix Its path, ending with a slash unless empty.
+         */
+        Walk(Path dir, String prefix) {
+            _dir = dir;
+            _prefix = prefix;
+        }
+
+        @Override
+        protected List<String> compute() {
+            ArrayList<String> result = new ArrayList<>();
+            ArrayList<Walk> subdirectories = new ArrayList<>();
+            try (DirectoryStream<Path> entries =
+                         Files.newDirectoryStream(_dir)) {
+                for (Path entry : entries) {
+                    String name = entry.getFileName().toString();
+                    String path = _prefix + name;
+                    BasicFileAttributes attributes;
+                    try {
+                        attributes = Files.readAttributes(entry,
+                                BasicFileAttributes.class,
+                                LinkOption.NOFOLLOW_LINKS);
+                    } catch (NoSuchFileException e) {
+                        continue;
+                    }
+                    if (attributes.isDirectory()) {
+                        if (!name.equals(REPOSITORY)
+                                && !ignored(path, true)) {
+                            Walk walk = new Walk(entry,
+                                    path + Tree.SEPARATOR);
+                            walk.fork();
+                            subdirectories.add(walk);
+                        }
+                    } else if ((attributes.isRegularFile()
+                            || attributes.isSymbolicLink()
+                            && Files.isRegularFile(entry))
+                            && !ignored(path, false)) {
+                        result.add(path);
+                    }
+                }
+            } catch (NoSuchFileException e) {
+                return result;
+            } catch (IOException e) {
+                throw Utils.error("Could not list %s.",
+                        _prefix.isEmpty() ? "." : _prefix);
+            }
+            for (Walk walk : subdirectories) {
+                result.addAll(walk.join());
+            }
+            return result;
+        }
+    }
+
+    /** A pattern of our ignore file. */
+    private static class Rule {
+
+        /** The paths the pattern matches. */
+        private final Pattern _pattern;
+
+        /** True if the pattern re-includes the paths it matches. */
+        private final boolean _negated;
+
+        /** True if the pattern only matches directories. */
+        private final boolean _directoryOnly;
+
+        /**
+         * A rule matching PATTERN.
+         * @param pattern The paths the rule matches.
+         * @param negated True if the rule re-includes those paths.
+         * @param directoryOnly True if the rule only matches directories.
+         */
+        private Rule(Pattern pattern, boolean negated,
+                     boolean directoryOnly) {
+            _pattern = pattern;
+            _negated = negated;
+            _directoryOnly = directoryOnly;
+        }
+
+        /**
+         * Returns the rule written as LINE of an ignore file.
+         * @param line A line of an ignore file.
+         * @return The rule, or null if LINE is blank or a comment.
+         */
+        static Rule parse(String line) {
+            String glob = line.strip();
+            if (glob.isEmpty() || glob.charAt(0) == '#') {
+                return null;
+            }
+            boolean negated = glob.charAt(0) == '!';
+            if (negated) {
+                glob = glob.substring(1);
+            } else if (glob.startsWith("\\#") || glob.startsWith("\\!")) {
+                glob = glob.substring(1);
+            }
+            boolean directoryOnly = glob.endsWith("/");
+            while (glob.endsWith("/")) {
+                glob = glob.substring(0, glob.length() - 1);
+            }
+            boolean anchored = glob.indexOf(Tree.SEPARATOR) != -1;
+            if (glob.startsWith("/")) {
+                glob = glob.substring(1);
+            }
+            if (glob.isEmpty()) {
+                return null;
+            }
+            return new Rule(Pattern.compile((anchored ? "" : "(?:.*/)?")
+                    + toRegex(glob)), negated, directoryOnly);
+        }
+
+        /**
+         * Returns a regular expression matching what GLOB matches.
+         * @param glob A pattern of an ignore file.
+         * @return The equivalent regular expression.
+         */
+        private static String toRegex(String glob) {
+            StringBuilder regex = new StringBuilder();
+            for (int i = 0; i < glob.length(); i += 1) {
+                char c = glob.charAt(i);
+                if (c == '*' && glob.startsWith("**/", i)) {
+                    regex.append("(?:.*/)?");
+                    i += 2;
+                } else if (c == '*' && glob.startsWith("**", i)) {
+                    regex.append(".*");
+                    i += 1;
+                } else if (c == '*') {
+                    regex.append("[^/]*");
+                } else if (c == '?') {
+                    regex.append("[^/]");
+                } else if (c == '[' && glob.indexOf(']', i + 2) != -1) {
+                    int end = glob.indexOf(']', i + 2);
+                    String set = glob.substring(i + 1, end);
+                    if (set.charAt(0) == '!') {
+                        set = "^" + set.substring(1);
+                    }
+                    regex.append('[').append(set.replace("\\", "\\\\")
+                            .replace("[", "\\[")).append(']');
+                    i = end;
+                } else if (c == '\\' && i + 1 < glob.length()) {
+                    i += 1;
+                    regex.append(Pattern.quote(String.valueOf(
+                            glob.charAt(i))));
+                } else {
+                    regex.append(Pattern.quote(String.valueOf(c)));
+                }
+            }
+            return regex.toString();
+        }
+    }
+}